@@ -78,6 +78,7 @@ import org.sonarsource.slang.impl.ParenthesizedExpressionTreeImpl;
 import org.sonarsource.slang.impl.PlaceHolderTreeImpl;
 import org.sonarsource.slang.impl.ReturnTreeImpl;
 import org.sonarsource.slang.impl.StringLiteralTreeImpl;
+import org.sonarsource.slang.impl.TextInterner;
 import org.sonarsource.slang.impl.TextPointerImpl;
 import org.sonarsource.slang.impl.TextRangeImpl;
 import org.sonarsource.slang.impl.TextRanges;
@@ -115,6 +116,19 @@ public class SLangConverter implements ASTConverter {
     SLangParser.RETURN,
     SLangParser.THIS));
 
+  private final TextInterner interner;
+
+  public SLangConverter() {
+    this(new TextInterner());
+  }
+
+  /**
+   * @param interner shared by all the files parsed with this converter, to keep one instance of each token text
+   */
+  public SLangConverter(TextInterner interner) {
+    this.interner = interner;
+  }
+
   @Override
   public Tree parse(String slangCode) {
     CommonTokenStream antlrTokens = getTokenStream(slangCode);
@@ -134,7 +148,7 @@ public class SLangConverter implements ASTConverter {
         } else if (token.getType() == SLangParser.StringLiteral) {
           type = Type.STRING_LITERAL;
         }
-        tokens.add(new TokenImpl(textRange, token.getText(), type));
+        tokens.add(new TokenImpl(textRange, interner.intern(token.getText()), type));
       }
     }
 
@@ -149,8 +163,10 @@ public class SLangConverter implements ASTConverter {
     SLangParser parser = new SLangParser(antlrTokens);
     parser.setErrorHandler(new ErrorStrategy());
 
-    SLangParseTreeVisitor slangVisitor = new SLangParseTreeVisitor(comments, tokens, annotationsVisitor.annotations);
-    return slangVisitor.visit(parser.slangFile());
+    SLangParseTreeVisitor slangVisitor = new SLangParseTreeVisitor(comments, tokens, annotationsVisitor.annotations, interner);
+    Tree tree = slangVisitor.visit(parser.slangFile());
+    slangVisitor.metaDataProvider.freeze();
+    return tree;
   }
 
   private static CommonTokenStream getTokenStream(String slangCode) {
@@ -243,8 +259,12 @@ public class SLangConverter implements ASTConverter {
 
     private final TreeMetaDataProvider metaDataProvider;
 
-    public SLangParseTreeVisitor(List<Comment> comments, List<org.sonarsource.slang.api.Token> tokens, List<Annotation> annotations) {
+    private final TextInterner interner;
+
+    public SLangParseTreeVisitor(List<Comment> comments, List<org.sonarsource.slang.api.Token> tokens, List<Annotation> annotations,
+      TextInterner interner) {
       metaDataProvider = new TreeMetaDataProvider(comments, tokens, annotations);
+      this.interner = interner;
     }
 
     @Override
@@ -322,7 +342,7 @@ public class SLangConverter implements ASTConverter {
       SLangParser.SimpleTypeContext resultContext = methodHeaderContext.simpleType();
       SLangParser.IdentifierContext identifier = methodHeaderContext.methodDeclarator().identifier();
       if (resultContext != null) {
-        returnType = new IdentifierTreeImpl(meta(resultContext), resultContext.getText());
+        returnType = new IdentifierTreeImpl(meta(resultContext), interner.intern(resultContext.getText()));
       }
       boolean isConstructor = false;
       if (identifier != null) {
@@ -394,7 +414,7 @@ public class SLangConverter implements ASTConverter {
       List<Tree> modifiers = list(ctx.parameterModifier());
 
       if (ctx.simpleType() != null) {
-        type = new IdentifierTreeImpl(meta(ctx.simpleType()), ctx.simpleType().getText());
+        type = new IdentifierTreeImpl(meta(ctx.simpleType()), interner.intern(ctx.simpleType().getText()));
       }
       if(ctx.expression() != null) {
         defaultValue = visit(ctx.expression());
@@ -412,7 +432,7 @@ public class SLangConverter implements ASTConverter {
       IdentifierTree identifier = (IdentifierTree) visit(ctx.identifier());
       Tree type = null;
       if (ctx.simpleType() != null) {
-        type = new IdentifierTreeImpl(meta(ctx.simpleType()), ctx.simpleType().getText());
+        type = new IdentifierTreeImpl(meta(ctx.simpleType()), interner.intern(ctx.simpleType().getText()));
       }
       Tree initializer = null;
       if (ctx.expression() != null) {
@@ -581,7 +601,7 @@ public class SLangConverter implements ASTConverter {
       } else if("_".equals(ctx.getText())) {
         return new PlaceHolderTreeImpl(meta(ctx), toSlangToken(ctx.getStart()));
       } else {
-        return new IdentifierTreeImpl(meta(ctx), ctx.getText());
+        return new IdentifierTreeImpl(meta(ctx), interner.intern(ctx.getText()));
       }
     }
 
@@ -673,16 +693,16 @@ public class SLangConverter implements ASTConverter {
       return result;
     }
 
-    private static org.sonarsource.slang.api.Token toSlangToken(Token antlrToken) {
+    private org.sonarsource.slang.api.Token toSlangToken(Token antlrToken) {
       TextRange textRange = getSlangTextRange(antlrToken);
-      return new TokenImpl(textRange, antlrToken.getText(), Type.KEYWORD);
+      return new TokenImpl(textRange, interner.intern(antlrToken.getText()), Type.KEYWORD);
     }
 
-    private static org.sonarsource.slang.api.Token operatorToken(ParserRuleContext parserRuleContext) {
+    private org.sonarsource.slang.api.Token operatorToken(ParserRuleContext parserRuleContext) {
       TextRange textRange = TextRanges.merge(Arrays.asList(
         getSlangTextRange(parserRuleContext.start),
         getSlangTextRange(parserRuleContext.stop)));
-      return new TokenImpl(textRange, parserRuleContext.getText(), Type.OTHER);
+      return new TokenImpl(textRange, interner.intern(parserRuleContext.getText()), Type.OTHER);
     }
 
   }
@@ -31,8 +31,7 @@ public interface Tree extends HasTextRange {
   }
 
   default Stream<Tree> descendants() {
-    return children().stream()
-      .flatMap(tree -> Stream.concat(Stream.of(tree), tree.descendants()));
+    return TreeDescendants.of(this);
   }
 
 }
@@ -0,0 +1,95 @@
+/*
+ * SonarSource SLang
+ * Copyright (C) 2018-2026 SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.slang.api;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.annotation.CheckForNull;
+
+/**
+ * Lazy depth-first, pre-order iteration over the descendants of a node, see {@link Tree#descendants()}.
+ * An explicit stack is used instead of recursion, so that deeply nested trees cannot overflow the call stack.
+ * Null children are skipped.
+ */
+final class TreeDescendants implements Iterator<Tree> {
+
+  private final Deque<Frame> stack = new ArrayDeque<>();
+
+  private Tree next;
+
+  private TreeDescendants(Tree root) {
+    stack.push(new Frame(root));
+    next = computeNext();
+  }
+
+  static Stream<Tree> of(Tree root) {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new TreeDescendants(root),
+      Spliterator.ORDERED | Spliterator.NONNULL), false);
+  }
+
+  @Override
+  public boolean hasNext() {
+    return next != null;
+  }
+
+  @Override
+  public Tree next() {
+    if (next == null) {
+      throw new NoSuchElementException();
+    }
+    Tree result = next;
+    stack.push(new Frame(result));
+    next = computeNext();
+    return result;
+  }
+
+  @CheckForNull
+  private Tree computeNext() {
+    while (!stack.isEmpty()) {
+      Frame frame = stack.peek();
+      if (frame.index < frame.children.size()) {
+        Tree child = frame.children.get(frame.index);
+        frame.index++;
+        if (child != null) {
+          return child;
+        }
+      } else {
+        stack.pop();
+      }
+    }
+    return null;
+  }
+
+  private static class Frame {
+
+    private final List<Tree> children;
+
+    private int index = 0;
+
+    private Frame(Tree node) {
+      this.children = node.children();
+    }
+  }
+
+}
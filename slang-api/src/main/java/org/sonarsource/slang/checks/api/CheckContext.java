@@ -37,6 +37,22 @@ public interface CheckContext {
     }
   }
 
+  /**
+   * Innermost ancestor of the current node which is an instance of the given kind.
+   */
+  @CheckForNull
+  default <T extends Tree> T innermostAncestor(Class<T> kind) {
+    return this.ancestors().stream()
+      .filter(kind::isInstance)
+      .map(kind::cast)
+      .findFirst()
+      .orElse(null);
+  }
+
+  default boolean hasAncestor(Class<? extends Tree> kind) {
+    return innermostAncestor(kind) != null;
+  }
+
   String filename();
 
   String fileContent();
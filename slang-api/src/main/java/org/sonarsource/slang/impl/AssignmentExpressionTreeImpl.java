@@ -19,7 +19,6 @@ package org.sonarsource.slang.impl;
 import org.sonarsource.slang.api.AssignmentExpressionTree;
 import org.sonarsource.slang.api.Tree;
 import org.sonarsource.slang.api.TreeMetaData;
-import java.util.Arrays;
 import java.util.List;
 
 public class AssignmentExpressionTreeImpl extends BaseTreeImpl implements AssignmentExpressionTree {
@@ -27,12 +26,14 @@ public class AssignmentExpressionTreeImpl extends BaseTreeImpl implements Assign
   private final Operator operator;
   private final Tree leftHandSide;
   private final Tree statementOrExpression;
+  private final List<Tree> children;
 
   public AssignmentExpressionTreeImpl(TreeMetaData metaData, Operator operator, Tree leftHandSide, Tree statementOrExpression) {
     super(metaData);
     this.operator = operator;
     this.leftHandSide = leftHandSide;
     this.statementOrExpression = statementOrExpression;
+    this.children = childrenOf(leftHandSide, statementOrExpression);
   }
 
   @Override
@@ -52,6 +53,6 @@ public class AssignmentExpressionTreeImpl extends BaseTreeImpl implements Assign
 
   @Override
   public List<Tree> children() {
-    return Arrays.asList(leftHandSide, statementOrExpression);
+    return children;
   }
 }
@@ -16,6 +16,10 @@
  */
 package org.sonarsource.slang.impl;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
 import org.sonarsource.slang.api.Tree;
 import org.sonarsource.slang.api.TreeMetaData;
 
@@ -23,6 +27,11 @@ public abstract class BaseTreeImpl implements Tree {
 
   private final TreeMetaData metaData;
 
+  /**
+   * See {@link TreeKinds}, -1 until computed. Volatile, so that it is read and written atomically by any thread.
+   */
+  private volatile long subtreeKinds = -1L;
+
   protected BaseTreeImpl(TreeMetaData metaData) {
     this.metaData = metaData;
   }
@@ -31,4 +40,44 @@ public abstract class BaseTreeImpl implements Tree {
   public TreeMetaData metaData() {
     return metaData;
   }
+
+  /**
+   * Unmodifiable list of the given nodes, without the null ones, to be returned by {@link #children()}.
+   */
+  protected static List<Tree> childrenOf(@Nullable Tree... nodes) {
+    int size = 0;
+    for (Tree node : nodes) {
+      if (node != null) {
+        size++;
+      }
+    }
+    Tree[] children = new Tree[size];
+    int index = 0;
+    for (Tree node : nodes) {
+      if (node != null) {
+        children[index] = node;
+        index++;
+      }
+    }
+    return Collections.unmodifiableList(Arrays.asList(children));
+  }
+
+  /**
+   * Kinds of this node and of all its descendants, see {@link TreeKinds}.
+   */
+  public long subtreeKinds() {
+    long kinds = subtreeKinds;
+    if (kinds == -1L) {
+      kinds = TreeKinds.computeSubtreeKinds(this);
+    }
+    return kinds;
+  }
+
+  boolean hasSubtreeKinds() {
+    return subtreeKinds != -1L;
+  }
+
+  void setSubtreeKinds(long subtreeKinds) {
+    this.subtreeKinds = subtreeKinds;
+  }
 }
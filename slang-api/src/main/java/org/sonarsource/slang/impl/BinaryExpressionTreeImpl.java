@@ -20,7 +20,6 @@ import org.sonarsource.slang.api.BinaryExpressionTree;
 import org.sonarsource.slang.api.Token;
 import org.sonarsource.slang.api.Tree;
 import org.sonarsource.slang.api.TreeMetaData;
-import java.util.Arrays;
 import java.util.List;
 
 public class BinaryExpressionTreeImpl extends BaseTreeImpl implements BinaryExpressionTree {
@@ -29,6 +28,7 @@ public class BinaryExpressionTreeImpl extends BaseTreeImpl implements BinaryExpr
   private final Token operatorToken;
   private final Tree leftOperand;
   private final Tree rightOperand;
+  private final List<Tree> children;
 
   public BinaryExpressionTreeImpl(TreeMetaData metaData, Operator operator, Token operatorToken, Tree leftOperand, Tree rightOperand) {
     super(metaData);
@@ -37,6 +37,7 @@ public class BinaryExpressionTreeImpl extends BaseTreeImpl implements BinaryExpr
 
     this.leftOperand = leftOperand;
     this.rightOperand = rightOperand;
+    this.children = childrenOf(leftOperand, rightOperand);
   }
 
   @Override
@@ -61,6 +62,6 @@ public class BinaryExpressionTreeImpl extends BaseTreeImpl implements BinaryExpr
 
   @Override
   public List<Tree> children() {
-    return Arrays.asList(leftOperand, rightOperand);
+    return children;
   }
 }
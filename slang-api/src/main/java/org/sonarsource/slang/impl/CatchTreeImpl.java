@@ -23,7 +23,6 @@ import org.sonarsource.slang.api.TreeMetaData;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
-import java.util.ArrayList;
 import java.util.List;
 
 public class CatchTreeImpl extends BaseTreeImpl implements CatchTree {
@@ -31,12 +30,15 @@ public class CatchTreeImpl extends BaseTreeImpl implements CatchTree {
   private final Tree catchParameter;
   private final Tree catchBlock;
   private final Token keyword;
+  private final List<Tree> children;
 
   public CatchTreeImpl(TreeMetaData metaData, @Nullable Tree catchParameter, Tree catchBlock, Token keyword) {
     super(metaData);
     this.catchParameter = catchParameter;
     this.catchBlock = catchBlock;
     this.keyword = keyword;
+
+    this.children = childrenOf(catchParameter, catchBlock);
   }
 
   @CheckForNull
@@ -57,13 +59,6 @@ public class CatchTreeImpl extends BaseTreeImpl implements CatchTree {
 
   @Override
   public List<Tree> children() {
-    List<Tree> children = new ArrayList<>();
-
-    if (catchParameter != null) {
-      children.add(catchParameter);
-    }
-    children.add(catchBlock);
-
     return children;
   }
 }
@@ -29,11 +29,14 @@ public class ClassDeclarationTreeImpl extends BaseTreeImpl implements ClassDecla
 
   private final IdentifierTree identifier;
   private final Tree classTree;
+  private final List<Tree> children;
 
   public ClassDeclarationTreeImpl(TreeMetaData metaData, @Nullable IdentifierTree identifier, Tree classTree) {
     super(metaData);
     this.identifier = identifier;
     this.classTree = classTree;
+    // identifier is not added to the children as it is already part of this classTree structure
+    this.children = Collections.singletonList(classTree);
   }
 
   @CheckForNull
@@ -49,7 +52,6 @@ public class ClassDeclarationTreeImpl extends BaseTreeImpl implements ClassDecla
 
   @Override
   public List<Tree> children() {
-    // identifier is not added to the children as it is already part of this classTree structure
-    return Collections.singletonList(classTree);
+    return children;
   }
 }
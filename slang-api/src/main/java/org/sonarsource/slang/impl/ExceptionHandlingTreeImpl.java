@@ -25,6 +25,7 @@ import org.sonarsource.slang.api.TreeMetaData;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class ExceptionHandlingTreeImpl extends BaseTreeImpl implements ExceptionHandlingTree {
@@ -33,6 +34,7 @@ public class ExceptionHandlingTreeImpl extends BaseTreeImpl implements Exception
   private final List<CatchTree> catchBlocks;
   private final Tree finallyBlock;
   private final Token tryKeyword;
+  private final List<Tree> children;
 
   public ExceptionHandlingTreeImpl(TreeMetaData metaData, Tree tryBlock, Token tryKeyword, List<CatchTree> catchBlocks, @Nullable Tree finallyBlock) {
     super(metaData);
@@ -40,6 +42,14 @@ public class ExceptionHandlingTreeImpl extends BaseTreeImpl implements Exception
     this.catchBlocks = catchBlocks;
     this.finallyBlock = finallyBlock;
     this.tryKeyword = tryKeyword;
+
+    List<Tree> nodes = new ArrayList<>(catchBlocks.size() + (finallyBlock == null ? 1 : 2));
+    nodes.add(tryBlock);
+    nodes.addAll(catchBlocks);
+    if (finallyBlock != null) {
+      nodes.add(finallyBlock);
+    }
+    this.children = Collections.unmodifiableList(nodes);
   }
 
   @Override
@@ -65,15 +75,6 @@ public class ExceptionHandlingTreeImpl extends BaseTreeImpl implements Exception
 
   @Override
   public List<Tree> children() {
-    List<Tree> children = new ArrayList<>();
-
-    children.add(tryBlock);
-    children.addAll(catchBlocks);
-
-    if (finallyBlock != null) {
-      children.add(finallyBlock);
-    }
-
     return children;
   }
 }
@@ -17,6 +17,7 @@
 package org.sonarsource.slang.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import org.sonarsource.slang.api.FunctionInvocationTree;
 import org.sonarsource.slang.api.Tree;
@@ -26,11 +27,16 @@ public class FunctionInvocationTreeImpl extends BaseTreeImpl implements Function
 
   private final Tree memberSelect;
   private final List<Tree> arguments;
+  private final List<Tree> children;
 
   public FunctionInvocationTreeImpl(TreeMetaData metaData, Tree memberSelect, List<Tree> arguments) {
     super(metaData);
     this.memberSelect = memberSelect;
     this.arguments = arguments;
+    List<Tree> nodes = new ArrayList<>(arguments.size() + 1);
+    nodes.add(memberSelect);
+    nodes.addAll(arguments);
+    this.children = Collections.unmodifiableList(nodes);
   }
 
 
@@ -46,9 +52,6 @@ public class FunctionInvocationTreeImpl extends BaseTreeImpl implements Function
 
   @Override
   public List<Tree> children() {
-    List<Tree> children = new ArrayList<>();
-    children.add(memberSelect);
-    children.addAll(arguments);
     return children;
   }
 }
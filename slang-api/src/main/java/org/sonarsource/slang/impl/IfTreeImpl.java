@@ -20,7 +20,6 @@ import org.sonarsource.slang.api.IfTree;
 import org.sonarsource.slang.api.Token;
 import org.sonarsource.slang.api.Tree;
 import org.sonarsource.slang.api.TreeMetaData;
-import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -32,6 +31,7 @@ public class IfTreeImpl extends BaseTreeImpl implements IfTree {
   private final Tree elseBranch;
   private final Token ifKeyword;
   private final Token elseKeyword;
+  private final List<Tree> children;
 
   public IfTreeImpl(
     TreeMetaData metaData,
@@ -46,6 +46,7 @@ public class IfTreeImpl extends BaseTreeImpl implements IfTree {
     this.elseBranch = elseBranch;
     this.ifKeyword = ifKeyword;
     this.elseKeyword = elseKeyword;
+    this.children = childrenOf(condition, thenBranch, elseBranch);
   }
 
   @Override
@@ -77,12 +78,6 @@ public class IfTreeImpl extends BaseTreeImpl implements IfTree {
 
   @Override
   public List<Tree> children() {
-    List<Tree> children = new ArrayList<>();
-    children.add(condition);
-    children.add(thenBranch);
-    if (elseBranch != null) {
-      children.add(elseBranch);
-    }
     return children;
   }
 }
@@ -30,12 +30,14 @@ public class JumpTreeImpl extends BaseTreeImpl implements JumpTree {
   private final IdentifierTree label;
   private final Token keyword;
   private final JumpKind kind;
+  private final List<Tree> children;
 
   public JumpTreeImpl(TreeMetaData metaData, Token keyword, JumpKind kind, @Nullable IdentifierTree label) {
     super(metaData);
     this.label = label;
     this.keyword = keyword;
     this.kind = kind;
+    this.children = label == null ? Collections.emptyList() : Collections.singletonList(label);
   }
 
   @CheckForNull
@@ -56,6 +58,6 @@ public class JumpTreeImpl extends BaseTreeImpl implements JumpTree {
 
   @Override
   public List<Tree> children() {
-    return label == null ? Collections.emptyList() : Collections.singletonList(label);
+    return children;
   }
 }
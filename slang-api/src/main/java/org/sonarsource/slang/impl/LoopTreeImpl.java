@@ -16,7 +16,6 @@
  */
 package org.sonarsource.slang.impl;
 
-import java.util.ArrayList;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonarsource.slang.api.LoopTree;
@@ -32,6 +31,7 @@ public class LoopTreeImpl extends BaseTreeImpl implements LoopTree {
   private final Tree body;
   private final LoopKind kind;
   private final Token keyword;
+  private final List<Tree> children;
 
   public LoopTreeImpl(TreeMetaData metaData, @Nullable Tree condition, Tree body, LoopKind kind, Token keyword) {
     super(metaData);
@@ -40,6 +40,7 @@ public class LoopTreeImpl extends BaseTreeImpl implements LoopTree {
     this.kind = kind;
     this.keyword = keyword;
 
+    this.children = childrenOf(condition, body);
   }
 
   @CheckForNull
@@ -65,11 +66,6 @@ public class LoopTreeImpl extends BaseTreeImpl implements LoopTree {
 
   @Override
   public List<Tree> children() {
-    List<Tree> children = new ArrayList<>();
-    if (condition != null) {
-      children.add(condition);
-    }
-    children.add(body);
     return children;
   }
 }
@@ -16,7 +16,6 @@
  */
 package org.sonarsource.slang.impl;
 
-import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -30,11 +29,13 @@ public class MatchCaseTreeImpl extends BaseTreeImpl implements MatchCaseTree {
 
   private final Tree expression;
   private final Tree body;
+  private final List<Tree> children;
 
   public MatchCaseTreeImpl(TreeMetaData metaData, @Nullable Tree expression, @Nullable Tree body) {
     super(metaData);
     this.expression = expression;
     this.body = body;
+    this.children = childrenOf(expression, body);
   }
 
   @CheckForNull
@@ -70,13 +71,6 @@ public class MatchCaseTreeImpl extends BaseTreeImpl implements MatchCaseTree {
 
   @Override
   public List<Tree> children() {
-    List<Tree> children = new ArrayList<>();
-    if (expression != null) {
-      children.add(expression);
-    }
-    if (body != null) {
-      children.add(body);
-    }
     return children;
   }
 }
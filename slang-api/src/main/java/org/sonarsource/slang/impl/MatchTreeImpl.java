@@ -17,6 +17,7 @@
 package org.sonarsource.slang.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -31,12 +32,19 @@ public class MatchTreeImpl extends BaseTreeImpl implements MatchTree {
   private final Tree expression;
   private final List<MatchCaseTree> cases;
   private final Token keyword;
+  private final List<Tree> children;
 
   public MatchTreeImpl(TreeMetaData metaData, @Nullable Tree expression, List<MatchCaseTree> cases, Token keyword) {
     super(metaData);
     this.expression = expression;
     this.cases = cases;
     this.keyword = keyword;
+    List<Tree> nodes = new ArrayList<>(cases.size() + (expression == null ? 0 : 1));
+    if (expression != null) {
+      nodes.add(expression);
+    }
+    nodes.addAll(cases);
+    this.children = Collections.unmodifiableList(nodes);
   }
 
   @CheckForNull
@@ -57,11 +65,6 @@ public class MatchTreeImpl extends BaseTreeImpl implements MatchTree {
 
   @Override
   public List<Tree> children() {
-    List<Tree> children = new ArrayList<>();
-    if (expression != null) {
-      children.add(expression);
-    }
-    children.addAll(cases);
     return children;
   }
 }
@@ -16,7 +16,6 @@
  */
 package org.sonarsource.slang.impl;
 
-import java.util.ArrayList;
 import java.util.List;
 import org.sonarsource.slang.api.IdentifierTree;
 import org.sonarsource.slang.api.MemberSelectTree;
@@ -27,11 +26,13 @@ public class MemberSelectTreeImpl extends BaseTreeImpl implements MemberSelectTr
 
   private final Tree expression;
   private final IdentifierTree identifier;
+  private final List<Tree> children;
 
   public MemberSelectTreeImpl(TreeMetaData metaData, Tree expression, IdentifierTree identifier) {
     super(metaData);
     this.expression = expression;
     this.identifier = identifier;
+    this.children = childrenOf(expression, identifier);
   }
 
   @Override
@@ -46,9 +47,6 @@ public class MemberSelectTreeImpl extends BaseTreeImpl implements MemberSelectTr
 
   @Override
   public List<Tree> children() {
-    List<Tree> children = new ArrayList<>();
-    children.add(expression);
-    children.add(identifier);
     return children;
   }
 }
@@ -32,6 +32,7 @@ public class ParameterTreeImpl extends BaseTreeImpl implements ParameterTree {
   private final Tree type;
   private final Tree defaultValue;
   private final List<Tree> modifiers;
+  private final List<Tree> children;
 
   public ParameterTreeImpl(TreeMetaData metaData, @Nullable IdentifierTree identifier, @Nullable Tree type, @Nullable Tree defaultValue, List<Tree> modifiers) {
     super(metaData);
@@ -39,6 +40,11 @@ public class ParameterTreeImpl extends BaseTreeImpl implements ParameterTree {
     this.type = type;
     this.defaultValue = defaultValue;
     this.modifiers = modifiers;
+    List<Tree> optionalNodes = childrenOf(identifier, type, defaultValue);
+    List<Tree> nodes = new ArrayList<>(modifiers.size() + optionalNodes.size());
+    nodes.addAll(modifiers);
+    nodes.addAll(optionalNodes);
+    this.children = Collections.unmodifiableList(nodes);
   }
 
   public ParameterTreeImpl(TreeMetaData metaData, @Nullable IdentifierTree identifier, @Nullable Tree type, @Nullable Tree defaultValue) {
@@ -73,17 +79,6 @@ public class ParameterTreeImpl extends BaseTreeImpl implements ParameterTree {
 
   @Override
   public List<Tree> children() {
-    List<Tree> children = new ArrayList<>();
-    children.addAll(modifiers);
-    if (identifier != null) {
-      children.add(identifier);
-    }
-    if (type != null) {
-      children.add(type);
-    }
-    if (defaultValue != null) {
-      children.add(defaultValue);
-    }
     return children;
   }
 
@@ -28,12 +28,14 @@ public class ParenthesizedExpressionTreeImpl extends BaseTreeImpl implements Par
   private final Tree expression;
   private final Token leftParenthesis;
   private final Token rightParenthesis;
+  private final List<Tree> children;
 
   public ParenthesizedExpressionTreeImpl(TreeMetaData metaData, Tree expression, Token leftParenthesis, Token rightParenthesis) {
     super(metaData);
     this.expression = expression;
     this.leftParenthesis = leftParenthesis;
     this.rightParenthesis = rightParenthesis;
+    this.children = Collections.singletonList(expression);
   }
 
   @Override
@@ -53,7 +55,7 @@ public class ParenthesizedExpressionTreeImpl extends BaseTreeImpl implements Par
 
   @Override
   public List<Tree> children() {
-    return Collections.singletonList(expression);
+    return children;
   }
 
 }
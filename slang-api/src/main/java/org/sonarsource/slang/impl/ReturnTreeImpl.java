@@ -28,11 +28,13 @@ import javax.annotation.Nullable;
 public class ReturnTreeImpl extends BaseTreeImpl implements ReturnTree {
   private final Tree body;
   private final Token keyword;
+  private final List<Tree> children;
 
   public ReturnTreeImpl(TreeMetaData metaData, Token keyword, @Nullable Tree body) {
     super(metaData);
     this.body = body;
     this.keyword = keyword;
+    this.children = body == null ? Collections.emptyList() : Collections.singletonList(body);
   }
 
   @CheckForNull
@@ -48,6 +50,6 @@ public class ReturnTreeImpl extends BaseTreeImpl implements ReturnTree {
 
   @Override
   public List<Tree> children() {
-    return body == null ? Collections.emptyList() : Collections.singletonList(body);
+    return children;
   }
 }
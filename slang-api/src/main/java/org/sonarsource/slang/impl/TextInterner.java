@@ -0,0 +1,69 @@
+/*
+ * SonarSource SLang
+ * Copyright (C) 2018-2026 SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.slang.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Returns one canonical instance for each distinct text, so that the many tokens and identifiers sharing the
+ * same text (keywords, operators, common names) do not each hold their own copy.
+ * <p>
+ * The number of interned texts is bounded: once {@link #maxSize()} texts are known, they are all forgotten and the
+ * interner is filled again with the next texts, so that it keeps up with the texts of the files being analyzed.
+ * It is safe to share one instance between the files and the threads of an analysis.
+ */
+public final class TextInterner {
+
+  public static final int DEFAULT_MAX_SIZE = 100_000;
+
+  private final Map<String, String> texts = new ConcurrentHashMap<>();
+
+  private final int maxSize;
+
+  public TextInterner() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  public TextInterner(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Invalid max size " + maxSize + ", expected a positive value");
+    }
+    this.maxSize = maxSize;
+  }
+
+  public String intern(String text) {
+    String canonical = texts.get(text);
+    if (canonical != null) {
+      return canonical;
+    }
+    if (texts.size() >= maxSize) {
+      texts.clear();
+    }
+    canonical = texts.putIfAbsent(text, text);
+    return canonical != null ? canonical : text;
+  }
+
+  public int size() {
+    return texts.size();
+  }
+
+  public int maxSize() {
+    return maxSize;
+  }
+
+}
@@ -17,7 +17,6 @@
 package org.sonarsource.slang.impl;
 
 import org.sonarsource.slang.api.TextPointer;
-import java.util.Objects;
 
 public class TextPointerImpl implements TextPointer {
 
@@ -62,7 +61,7 @@ public class TextPointerImpl implements TextPointer {
 
   @Override
   public int hashCode() {
-    return Objects.hash(line, lineOffset);
+    return 31 * line + lineOffset;
   }
 
 }
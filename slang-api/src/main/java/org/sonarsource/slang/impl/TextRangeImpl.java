@@ -58,7 +58,7 @@ public class TextRangeImpl implements TextRange {
 
   @Override
   public int hashCode() {
-    return Objects.hash(start, end);
+    return 31 * Objects.hashCode(start) + Objects.hashCode(end);
   }
 
   @Override
@@ -16,17 +16,12 @@
  */
 package org.sonarsource.slang.impl;
 
+import org.sonarsource.slang.api.TextPointer;
 import org.sonarsource.slang.api.TextRange;
 import java.util.List;
-import java.util.function.Supplier;
-
-import static java.util.Comparator.naturalOrder;
 
 public class TextRanges {
 
-  private static final Supplier<IllegalArgumentException> MERGE_EXCEPTION_SUPPLIER =
-    () -> new IllegalArgumentException("Can't merge 0 ranges");
-
   private TextRanges() {
   }
 
@@ -35,10 +30,37 @@ public class TextRanges {
   }
 
   public static TextRange merge(List<TextRange> ranges) {
-    return new TextRangeImpl(
-      ranges.stream().map(TextRange::start).min(naturalOrder()).orElseThrow(MERGE_EXCEPTION_SUPPLIER),
-      ranges.stream().map(TextRange::end).max(naturalOrder()).orElseThrow(MERGE_EXCEPTION_SUPPLIER)
-    );
+    if (ranges.isEmpty()) {
+      throw new IllegalArgumentException("Can't merge 0 ranges");
+    }
+    long start = Long.MAX_VALUE;
+    long end = Long.MIN_VALUE;
+    for (TextRange range : ranges) {
+      start = Math.min(start, pack(range.start()));
+      end = Math.max(end, pack(range.end()));
+    }
+    return new TextRangeImpl(line(start), lineOffset(start), line(end), lineOffset(end));
+  }
+
+  /**
+   * Encodes a position in a single long, line in the high bits and line offset in the low bits, so that
+   * comparing two packed positions gives the same result as {@link TextPointer#compareTo(Object)}
+   * for positions with non-negative line and line offset.
+   */
+  public static long pack(TextPointer pointer) {
+    return pack(pointer.line(), pointer.lineOffset());
+  }
+
+  public static long pack(int line, int lineOffset) {
+    return ((long) line << 32) | (lineOffset & 0xFFFFFFFFL);
+  }
+
+  public static int line(long packedPointer) {
+    return (int) (packedPointer >>> 32);
+  }
+
+  public static int lineOffset(long packedPointer) {
+    return (int) packedPointer;
   }
 
 }
@@ -28,11 +28,13 @@ import org.sonarsource.slang.api.TreeMetaData;
 public class ThrowTreeImpl extends BaseTreeImpl implements ThrowTree {
   private final Tree body;
   private final Token keyword;
+  private final List<Tree> children;
 
   public ThrowTreeImpl(TreeMetaData metaData, Token keyword, @Nullable Tree body) {
     super(metaData);
     this.body = body;
     this.keyword = keyword;
+    this.children = body == null ? Collections.emptyList() : Collections.singletonList(body);
   }
 
   @CheckForNull
@@ -48,6 +50,6 @@ public class ThrowTreeImpl extends BaseTreeImpl implements ThrowTree {
 
   @Override
   public List<Tree> children() {
-    return body == null ? Collections.emptyList() : Collections.singletonList(body);
+    return children;
   }
 }
@@ -0,0 +1,192 @@
+/*
+ * SonarSource SLang
+ * Copyright (C) 2018-2026 SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.slang.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+import org.sonarsource.slang.api.AssignmentExpressionTree;
+import org.sonarsource.slang.api.BinaryExpressionTree;
+import org.sonarsource.slang.api.BlockTree;
+import org.sonarsource.slang.api.CatchTree;
+import org.sonarsource.slang.api.ClassDeclarationTree;
+import org.sonarsource.slang.api.ExceptionHandlingTree;
+import org.sonarsource.slang.api.FunctionDeclarationTree;
+import org.sonarsource.slang.api.FunctionInvocationTree;
+import org.sonarsource.slang.api.IdentifierTree;
+import org.sonarsource.slang.api.IfTree;
+import org.sonarsource.slang.api.ImportDeclarationTree;
+import org.sonarsource.slang.api.IntegerLiteralTree;
+import org.sonarsource.slang.api.JumpTree;
+import org.sonarsource.slang.api.LiteralTree;
+import org.sonarsource.slang.api.LoopTree;
+import org.sonarsource.slang.api.MatchCaseTree;
+import org.sonarsource.slang.api.MatchTree;
+import org.sonarsource.slang.api.MemberSelectTree;
+import org.sonarsource.slang.api.ModifierTree;
+import org.sonarsource.slang.api.NativeTree;
+import org.sonarsource.slang.api.PackageDeclarationTree;
+import org.sonarsource.slang.api.ParameterTree;
+import org.sonarsource.slang.api.ParenthesizedExpressionTree;
+import org.sonarsource.slang.api.PlaceHolderTree;
+import org.sonarsource.slang.api.ReturnTree;
+import org.sonarsource.slang.api.StringLiteralTree;
+import org.sonarsource.slang.api.ThrowTree;
+import org.sonarsource.slang.api.TopLevelTree;
+import org.sonarsource.slang.api.Tree;
+import org.sonarsource.slang.api.UnaryExpressionTree;
+import org.sonarsource.slang.api.VariableDeclarationTree;
+
+/**
+ * Summaries, as bitmasks, of the kinds of nodes which appear in a subtree. Each interface of
+ * {@link org.sonarsource.slang.api} extending {@link Tree} is a kind, and a node is of all the kinds it implements.
+ * <p>
+ * The summary of a subtree is only known for nodes extending {@link BaseTreeImpl}, where it is computed on first
+ * request and kept: nodes do not change once built, so computing it again from several threads gives the same value.
+ * Any other node is considered to contain all the kinds.
+ */
+public final class TreeKinds {
+
+  private static final List<Class<? extends Tree>> KINDS = List.of(
+    AssignmentExpressionTree.class,
+    BinaryExpressionTree.class,
+    BlockTree.class,
+    CatchTree.class,
+    ClassDeclarationTree.class,
+    ExceptionHandlingTree.class,
+    FunctionDeclarationTree.class,
+    FunctionInvocationTree.class,
+    IdentifierTree.class,
+    IfTree.class,
+    ImportDeclarationTree.class,
+    IntegerLiteralTree.class,
+    JumpTree.class,
+    LiteralTree.class,
+    LoopTree.class,
+    MatchCaseTree.class,
+    MatchTree.class,
+    MemberSelectTree.class,
+    ModifierTree.class,
+    NativeTree.class,
+    PackageDeclarationTree.class,
+    ParameterTree.class,
+    ParenthesizedExpressionTree.class,
+    PlaceHolderTree.class,
+    ReturnTree.class,
+    StringLiteralTree.class,
+    ThrowTree.class,
+    TopLevelTree.class,
+    UnaryExpressionTree.class,
+    VariableDeclarationTree.class);
+
+  public static final long ALL = (1L << KINDS.size()) - 1;
+
+  private static final ClassValue<Long> KINDS_BY_CLASS = new ClassValue<>() {
+    @Override
+    protected Long computeValue(Class<?> cls) {
+      long kinds = 0L;
+      for (int i = 0; i < KINDS.size(); i++) {
+        if (KINDS.get(i).isAssignableFrom(cls)) {
+          kinds |= 1L << i;
+        }
+      }
+      return kinds;
+    }
+  };
+
+  private TreeKinds() {
+  }
+
+  /**
+   * Kinds of all the instances of the given class, 0 when the class does not implement any kind,
+   * like {@link Tree} itself.
+   */
+  public static long kindsOf(Class<?> cls) {
+    return KINDS_BY_CLASS.get(cls);
+  }
+
+  /**
+   * Kinds of the given node and of all its descendants.
+   */
+  public static long subtreeKinds(Tree tree) {
+    if (tree instanceof BaseTreeImpl baseTree) {
+      return baseTree.subtreeKinds();
+    }
+    return ALL;
+  }
+
+  /**
+   * Same as {@code node.descendants().filter(type::isInstance)}, in the same pre-order, without going down the
+   * subtrees which contain no node of the kinds of the given type.
+   */
+  public static <T extends Tree> Stream<T> descendants(Tree node, Class<T> type) {
+    long kinds = kindsOf(type);
+    List<T> descendants = new ArrayList<>();
+    Deque<Tree> stack = new ArrayDeque<>();
+    pushChildren(stack, node, kinds);
+    while (!stack.isEmpty()) {
+      Tree descendant = stack.pop();
+      if (type.isInstance(descendant)) {
+        descendants.add(type.cast(descendant));
+      }
+      pushChildren(stack, descendant, kinds);
+    }
+    return descendants.stream();
+  }
+
+  private static void pushChildren(Deque<Tree> stack, Tree node, long kinds) {
+    List<Tree> children = node.children();
+    // in reverse order, so that the first child is popped first
+    for (int i = children.size() - 1; i >= 0; i--) {
+      Tree child = children.get(i);
+      if (child != null && (kinds == 0L || (subtreeKinds(child) & kinds) != 0)) {
+        stack.push(child);
+      }
+    }
+  }
+
+  static long computeSubtreeKinds(BaseTreeImpl root) {
+    // nodes whose summary is not known yet, in pre-order: each node comes after its parent
+    List<BaseTreeImpl> nodes = new ArrayList<>();
+    Deque<BaseTreeImpl> stack = new ArrayDeque<>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      BaseTreeImpl node = stack.pop();
+      nodes.add(node);
+      for (Tree child : node.children()) {
+        if (child instanceof BaseTreeImpl baseTree && !baseTree.hasSubtreeKinds()) {
+          stack.push(baseTree);
+        }
+      }
+    }
+    // in reverse order, the summaries of the children are known before the one of their parent
+    for (int i = nodes.size() - 1; i >= 0; i--) {
+      BaseTreeImpl node = nodes.get(i);
+      long kinds = kindsOf(node.getClass());
+      for (Tree child : node.children()) {
+        if (child != null) {
+          kinds |= subtreeKinds(child);
+        }
+      }
+      node.setSubtreeKinds(kinds);
+    }
+    return root.subtreeKinds();
+  }
+
+}
@@ -19,7 +19,6 @@ package org.sonarsource.slang.impl;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -31,14 +30,22 @@ import org.sonarsource.slang.api.TextPointer;
 import org.sonarsource.slang.api.TextRange;
 import org.sonarsource.slang.api.Token;
 import org.sonarsource.slang.api.TreeMetaData;
+import org.sonarsource.slang.utils.LineSet;
 
+/**
+ * Comments, tokens and annotations of a file, from which the {@link TreeMetaData} of its trees are computed.
+ * <p>
+ * Converters can update token types while they build a tree, then {@link #freeze()} the provider: it becomes
+ * immutable, and the tree and its metadata can be shared between threads.
+ */
 public class TreeMetaDataProvider {
 
-  public static final Comparator<HasTextRange> COMPARATOR = Comparator.comparing(e -> e.textRange().start());
+  public static final Comparator<HasTextRange> COMPARATOR = Comparator.comparingLong(e -> TextRanges.pack(e.textRange().start()));
 
   private final List<Comment> sortedComments;
   private final List<Annotation> sortedAnnotations;
   private final List<Token> sortedTokens;
+  private volatile boolean frozen = false;
 
   public TreeMetaDataProvider(List<Comment> comments, List<Token> tokens) {
     this(comments, tokens, Collections.emptyList());
@@ -53,12 +60,25 @@ public class TreeMetaDataProvider {
     this.sortedAnnotations.sort(COMPARATOR);
   }
 
+  /**
+   * Forbids any further modification of the comments and tokens. Metadata computed before or after share the
+   * same, now immutable, data.
+   */
+  public TreeMetaDataProvider freeze() {
+    frozen = true;
+    return this;
+  }
+
+  public boolean isFrozen() {
+    return frozen;
+  }
+
   public List<Comment> allComments() {
-    return sortedComments;
+    return frozen ? Collections.unmodifiableList(sortedComments) : sortedComments;
   }
 
   public List<Token> allTokens() {
-    return sortedTokens;
+    return frozen ? Collections.unmodifiableList(sortedTokens) : sortedTokens;
   }
 
   public int indexOfFirstToken(TextRange textRange) {
@@ -92,6 +112,9 @@ public class TreeMetaDataProvider {
   }
 
   public void updateTokenType(Token token, Token.Type newType) {
+    if (frozen) {
+      throw new IllegalStateException("Can not update the type of token '" + token.text() + "', metadata is frozen");
+    }
     int tokenIndex = indexOfFirstToken(token.textRange());
     if (!isExistingToken(token, tokenIndex)) {
       throw new IllegalArgumentException("token '" + token.text() + "' not found in metadata, " + token.textRange());
@@ -104,13 +127,22 @@ public class TreeMetaDataProvider {
   }
 
   public Token keyword(TextRange textRange) {
-    List<Token> keywordsInRange = getElementsInRange(sortedTokens, textRange).stream()
-      .filter(t -> t.type() == Token.Type.KEYWORD)
-      .toList();
-    if (keywordsInRange.size() != 1) {
+    int keywordIndex = -1;
+    int keywordCount = 0;
+    int first = indexOfFirstElement(sortedTokens, textRange);
+    if (first != -1) {
+      int end = endOfElementsInside(sortedTokens, first, textRange);
+      for (int i = first; i < end; i++) {
+        if (sortedTokens.get(i).type() == Token.Type.KEYWORD) {
+          keywordIndex = i;
+          keywordCount++;
+        }
+      }
+    }
+    if (keywordCount != 1) {
       throw new IllegalArgumentException("Cannot find single keyword in " + textRange);
     }
-    return keywordsInRange.get(0);
+    return sortedTokens.get(keywordIndex);
   }
 
   private static <T extends HasTextRange> int indexOfFirstElement(List<T> sortedList, TextRange textRange) {
@@ -125,20 +157,34 @@ public class TreeMetaDataProvider {
     return -1;
   }
 
+  /**
+   * Unmodifiable view of the elements inside the given range. Elements do not overlap, so their ends are sorted
+   * like their starts, and both bounds are found by binary search.
+   */
   private static <T extends HasTextRange> List<T> getElementsInRange(List<T> sortedList, TextRange textRange) {
     int first = indexOfFirstElement(sortedList, textRange);
     if (first == -1) {
       return Collections.emptyList();
     }
-    List<T> elementsInsideRange = new ArrayList<>();
-    for (int i = first; i < sortedList.size(); i++) {
-      T element = sortedList.get(i);
-      if (!element.textRange().isInside(textRange)) {
-        break;
+    return Collections.unmodifiableList(sortedList.subList(first, endOfElementsInside(sortedList, first, textRange)));
+  }
+
+  /**
+   * Index following the last element which is inside the given range, given the index of the first one.
+   */
+  private static <T extends HasTextRange> int endOfElementsInside(List<T> sortedList, int first, TextRange textRange) {
+    TextPointer end = textRange.end();
+    int low = first;
+    int high = sortedList.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (sortedList.get(middle).textRange().end().compareTo(end) <= 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
       }
-      elementsInsideRange.add(element);
     }
-    return elementsInsideRange;
+    return low;
   }
 
   private static List<Annotation> getAnnotationStartingAtRange(List<Annotation> sortedList, List<Token> sortedToken, TextRange textRange) {
@@ -167,7 +213,7 @@ public class TreeMetaDataProvider {
       }
     }
 
-    return elementsInsideRange;
+    return Collections.unmodifiableList(elementsInsideRange);
   }
 
   public TreeMetaData metaData(TextRange textRange) {
@@ -177,8 +223,9 @@ public class TreeMetaDataProvider {
   private class TreeMetaDataImpl implements TreeMetaData {
 
     private final TextRange textRange;
-    private Set<Integer> linesOfCode;
-    private List<Annotation> annotations;
+    // lazily computed, possibly more than once when read from several threads, and shared by all the callers
+    private volatile LineSet linesOfCode;
+    private volatile List<Annotation> annotations;
 
     private TreeMetaDataImpl(TextRange textRange) {
       this.textRange = textRange;
@@ -196,10 +243,12 @@ public class TreeMetaDataProvider {
 
     @Override
     public List<Annotation> annotations() {
-      if (annotations == null) {
-        annotations = getAnnotationStartingAtRange(sortedAnnotations, sortedTokens, textRange);
+      List<Annotation> result = annotations;
+      if (result == null) {
+        result = getAnnotationStartingAtRange(sortedAnnotations, sortedTokens, textRange);
+        annotations = result;
       }
-      return annotations;
+      return result;
     }
 
     @Override
@@ -209,19 +258,19 @@ public class TreeMetaDataProvider {
 
     @Override
     public Set<Integer> linesOfCode() {
-      if (linesOfCode == null) {
-        linesOfCode = computeLinesOfCode();
+      LineSet result = linesOfCode;
+      if (result == null) {
+        result = computeLinesOfCode().unmodifiableView();
+        linesOfCode = result;
       }
-      return linesOfCode;
+      return result;
     }
 
-    private Set<Integer> computeLinesOfCode() {
-      Set<Integer> loc = new HashSet<>();
+    private LineSet computeLinesOfCode() {
+      LineSet loc = new LineSet();
       for (Token token : tokens()) {
         TextRange range = token.textRange();
-        for (int i = range.start().line(); i <= range.end().line(); i++) {
-          loc.add(i);
-        }
+        loc.addRange(range.start().line(), range.end().line());
       }
       return loc;
     }
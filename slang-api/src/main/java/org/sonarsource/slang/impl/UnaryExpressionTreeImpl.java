@@ -26,11 +26,13 @@ public class UnaryExpressionTreeImpl extends BaseTreeImpl implements UnaryExpres
 
   private final Operator operator;
   private final Tree operand;
+  private final List<Tree> children;
 
   public UnaryExpressionTreeImpl(TreeMetaData metaData, Operator operator, Tree operand) {
     super(metaData);
     this.operator = operator;
     this.operand = operand;
+    this.children = Collections.singletonList(operand);
   }
 
   @Override
@@ -45,7 +47,7 @@ public class UnaryExpressionTreeImpl extends BaseTreeImpl implements UnaryExpres
 
   @Override
   public List<Tree> children() {
-    return Collections.singletonList(operand);
+    return children;
   }
 
 }
@@ -24,7 +24,6 @@ import org.sonarsource.slang.api.VariableDeclarationTree;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
-import java.util.ArrayList;
 import java.util.List;
 
 public class VariableDeclarationTreeImpl extends BaseTreeImpl implements VariableDeclarationTree {
@@ -33,6 +32,7 @@ public class VariableDeclarationTreeImpl extends BaseTreeImpl implements Variabl
   private final Tree type;
   private final Tree initializer;
   private final boolean isVal;
+  private final List<Tree> children;
 
   public VariableDeclarationTreeImpl(TreeMetaData metaData, IdentifierTree identifier, @Nullable Tree type, @Nullable Tree initializer, boolean isVal) {
     super(metaData);
@@ -40,6 +40,7 @@ public class VariableDeclarationTreeImpl extends BaseTreeImpl implements Variabl
     this.type = type;
     this.initializer = initializer;
     this.isVal = isVal;
+    this.children = childrenOf(identifier, type, initializer);
   }
 
   @Override
@@ -66,17 +67,6 @@ public class VariableDeclarationTreeImpl extends BaseTreeImpl implements Variabl
 
   @Override
   public List<Tree> children() {
-    List<Tree> children = new ArrayList<>();
-    children.add(identifier);
-
-    if (type != null) {
-      children.add(type);
-    }
-
-    if (initializer != null) {
-      children.add(initializer);
-    }
-
     return children;
   }
 
@@ -0,0 +1,46 @@
+/*
+ * SonarSource SLang
+ * Copyright (C) 2018-2026 SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.slang.persistence;
+
+import org.sonarsource.slang.api.Tree;
+import org.sonarsource.slang.impl.TextInterner;
+import org.sonarsource.slang.persistence.conversion.BinaryTreeConverter;
+
+/**
+ * Compact binary alternative to {@link JsonTree}, see {@link BinaryTreeConverter} for the format.
+ */
+public final class BinaryTree {
+
+  private BinaryTree() {
+  }
+
+  public static byte[] toBinary(Tree tree) {
+    return BinaryTreeConverter.write(tree);
+  }
+
+  public static Tree fromBinary(byte[] bytes) {
+    return fromBinary(bytes, new TextInterner());
+  }
+
+  /**
+   * @param textInterner can be shared between the files of an analysis, so their tokens and identifiers share the same texts
+   */
+  public static Tree fromBinary(byte[] bytes, TextInterner textInterner) {
+    return BinaryTreeConverter.read(bytes, textInterner);
+  }
+
+}
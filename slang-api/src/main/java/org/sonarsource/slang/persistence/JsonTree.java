@@ -17,13 +17,13 @@
 package org.sonarsource.slang.persistence;
 
 import com.eclipsesource.json.Json;
-import com.eclipsesource.json.JsonObject;
 import org.sonarsource.slang.api.Tree;
 import org.sonarsource.slang.api.TreeMetaData;
+import org.sonarsource.slang.impl.TextInterner;
 import org.sonarsource.slang.impl.TreeMetaDataProvider;
-import org.sonarsource.slang.persistence.conversion.DeserializationContext;
 import org.sonarsource.slang.persistence.conversion.JsonTreeConverter;
 import org.sonarsource.slang.persistence.conversion.SerializationContext;
+import org.sonarsource.slang.persistence.conversion.StreamingTreeDeserializer;
 
 public final class JsonTree {
 
@@ -41,12 +41,14 @@ public final class JsonTree {
   }
 
   public static Tree fromJson(String json) {
-    JsonObject root = Json.parse(json).asObject();
-    JsonObject treeMetaData = root.get("treeMetaData").asObject();
-    DeserializationContext ctx = new DeserializationContext(JsonTreeConverter.POLYMORPHIC_CONVERTER);
-    TreeMetaDataProvider metaDataProvider = JsonTreeConverter.TREE_METADATA_PROVIDER_FROM_JSON.apply(ctx, treeMetaData);
-    ctx = ctx.withMetaDataProvider(metaDataProvider);
-    return ctx.fieldToNullableObject(root, "tree", Tree.class);
+    return fromJson(json, new TextInterner());
+  }
+
+  /**
+   * @param textInterner can be shared between the files of an analysis, so their tokens and identifiers share the same texts
+   */
+  public static Tree fromJson(String json, TextInterner textInterner) {
+    return StreamingTreeDeserializer.fromJson(json, textInterner);
   }
 
 }
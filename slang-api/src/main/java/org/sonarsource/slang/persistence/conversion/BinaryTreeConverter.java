@@ -0,0 +1,427 @@
+/*
+ * SonarSource SLang
+ * Copyright (C) 2018-2026 SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.slang.persistence.conversion;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonArray;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonarsource.slang.api.TextPointer;
+import org.sonarsource.slang.api.TextRange;
+import org.sonarsource.slang.api.Tree;
+import org.sonarsource.slang.api.TreeMetaData;
+import org.sonarsource.slang.impl.TextInterner;
+import org.sonarsource.slang.impl.TextRangeImpl;
+import org.sonarsource.slang.impl.TreeMetaDataProvider;
+
+import static org.sonarsource.slang.persistence.conversion.JsonTreeConverter.POLYMORPHIC_CONVERTER;
+import static org.sonarsource.slang.persistence.conversion.SerializationContext.TYPE_ATTRIBUTE;
+
+/**
+ * Binary encoding of the json written by the {@link JsonTreeConverter}, so that every registered tree class
+ * is supported by construction. Compared to the json text:
+ * <ul>
+ *   <li>member names, tree types and strings are written once in a string table, then referenced by index,</li>
+ *   <li>ranges are written as varints relative to the start of the enclosing node, or to the previous range
+ *   outside of nodes, like the tokens and comments of "treeMetaData".</li>
+ * </ul>
+ * As tree types are written by name, the format version only changes with the layout of the data, not when tree
+ * types are added or removed. Ranges are recognized by identity of the texts written by the
+ * {@link SerializationContext}, and the texts of the ranges read are resolved by the {@link DeserializationContext}
+ * without being parsed again.
+ * <p>
+ * Like {@link StreamingTreeDeserializer}, nodes are deserialized as soon as they are read.
+ */
+public final class BinaryTreeConverter {
+
+  static final int FORMAT_VERSION = 2;
+
+  private static final int NULL = 0;
+  private static final int TRUE = 1;
+  private static final int FALSE = 2;
+  private static final int STRING = 3;
+  private static final int RANGE = 4;
+  private static final int NUMBER = 5;
+  private static final int ARRAY = 6;
+  private static final int OBJECT = 7;
+  private static final int NODE = 8;
+
+  private static final String META_DATA = "metaData";
+  private static final String TREE_METADATA = "treeMetaData";
+  private static final String TREE = "tree";
+
+  private BinaryTreeConverter() {
+  }
+
+  public static byte[] write(Tree tree) {
+    TreeMetaData metaData = tree.metaData();
+    TreeMetaDataProvider provider = new TreeMetaDataProvider(metaData.commentsInside(), metaData.tokens());
+    SerializationContext ctx = new SerializationContext(POLYMORPHIC_CONVERTER).withRangeTracking();
+    JsonObject root = Json.object()
+      .add(TREE_METADATA, JsonTreeConverter.TREE_METADATA_PROVIDER_TO_JSON.apply(ctx, provider))
+      .add(TREE, ctx.toJson(tree));
+    Writer writer = new Writer(ctx);
+    writer.writeValue(root);
+    return writer.toByteArray();
+  }
+
+  public static Tree read(byte[] bytes, TextInterner textInterner) {
+    DeserializationContext ctx = new DeserializationContext(POLYMORPHIC_CONVERTER).withTextInterner(textInterner);
+    Reader reader = new Reader(bytes, ctx, textInterner);
+    JsonObject root = reader.readRoot();
+    TreeMetaDataProvider metaDataProvider = reader.metaDataProvider;
+    if (metaDataProvider == null) {
+      throw new IllegalStateException("Invalid binary tree, missing '" + TREE_METADATA + "'");
+    }
+    Tree tree = ctx.fieldToNullableObject(root, TREE, Tree.class);
+    metaDataProvider.freeze();
+    return tree;
+  }
+
+  private static final class Writer {
+
+    private final SerializationContext ctx;
+    private final Map<String, Integer> stringIndexes = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    // ranges are written relative to this position
+    private int baseLine = 1;
+    private int baseLineOffset = 0;
+    private boolean insideNode = false;
+
+    private Writer(SerializationContext ctx) {
+      this.ctx = ctx;
+    }
+
+    private byte[] toByteArray() {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(body.size() + strings.size() * 8 + 8);
+      writeUnsigned(out, FORMAT_VERSION);
+      writeUnsigned(out, strings.size());
+      for (String string : strings) {
+        byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+        writeUnsigned(out, utf8.length);
+        out.write(utf8, 0, utf8.length);
+      }
+      out.writeBytes(body.toByteArray());
+      return out.toByteArray();
+    }
+
+    private void writeValue(JsonValue value) {
+      if (value.isNull()) {
+        body.write(NULL);
+      } else if (value.isBoolean()) {
+        body.write(value.asBoolean() ? TRUE : FALSE);
+      } else if (value.isString()) {
+        writeString(value.asString());
+      } else if (value.isNumber()) {
+        body.write(NUMBER);
+        writeUnsigned(body, stringIndex(value.toString()));
+      } else if (value.isArray()) {
+        JsonArray array = value.asArray();
+        body.write(ARRAY);
+        writeUnsigned(body, array.size());
+        for (JsonValue element : array) {
+          writeValue(element);
+        }
+      } else {
+        writeObject(value.asObject());
+      }
+    }
+
+    private void writeString(String string) {
+      TextRange range = ctx.writtenRange(string);
+      if (range != null) {
+        body.write(RANGE);
+        writeRange(range);
+      } else {
+        body.write(STRING);
+        writeUnsigned(body, stringIndex(string));
+      }
+    }
+
+    private void writeObject(JsonObject object) {
+      Iterator<JsonObject.Member> members = object.iterator();
+      String jsonType = null;
+      TextRange range = null;
+      if (object.size() >= 2) {
+        JsonObject.Member type = members.next();
+        JsonObject.Member metaData = members.next();
+        jsonType = nodeType(type, metaData);
+        range = jsonType != null ? ctx.writtenRange(metaData.getValue().asString()) : null;
+      }
+      if (jsonType == null || range == null) {
+        body.write(OBJECT);
+        writeUnsigned(body, object.size());
+        writeMembers(object.iterator());
+        return;
+      }
+      body.write(NODE);
+      writeUnsigned(body, stringIndex(jsonType));
+      writeRange(range);
+      int parentBaseLine = baseLine;
+      int parentBaseLineOffset = baseLineOffset;
+      boolean parentInsideNode = insideNode;
+      baseLine = range.start().line();
+      baseLineOffset = range.start().lineOffset();
+      insideNode = true;
+      writeUnsigned(body, object.size() - 2);
+      writeMembers(members);
+      baseLine = parentBaseLine;
+      baseLineOffset = parentBaseLineOffset;
+      insideNode = parentInsideNode;
+    }
+
+    @CheckForNull
+    private static String nodeType(JsonObject.Member type, JsonObject.Member metaData) {
+      if (!TYPE_ATTRIBUTE.equals(type.getName()) || !type.getValue().isString() ||
+        !META_DATA.equals(metaData.getName()) || !metaData.getValue().isString()) {
+        return null;
+      }
+      return type.getValue().asString();
+    }
+
+    private void writeMembers(Iterator<JsonObject.Member> members) {
+      while (members.hasNext()) {
+        JsonObject.Member member = members.next();
+        writeUnsigned(body, stringIndex(member.getName()));
+        writeValue(member.getValue());
+      }
+    }
+
+    private void writeRange(TextRange range) {
+      TextPointer start = range.start();
+      TextPointer end = range.end();
+      int lineDelta = start.line() - baseLine;
+      writeSigned(lineDelta);
+      writeSigned(lineDelta == 0 ? (start.lineOffset() - baseLineOffset) : start.lineOffset());
+      int lineCount = end.line() - start.line();
+      writeSigned(lineCount);
+      writeSigned(lineCount == 0 ? (end.lineOffset() - start.lineOffset()) : end.lineOffset());
+      if (!insideNode) {
+        baseLine = start.line();
+        baseLineOffset = start.lineOffset();
+      }
+    }
+
+    private int stringIndex(String string) {
+      return stringIndexes.computeIfAbsent(string, s -> {
+        strings.add(s);
+        return strings.size() - 1;
+      });
+    }
+
+    private void writeSigned(int value) {
+      writeUnsigned(body, (value << 1) ^ (value >> 31));
+    }
+
+    private static void writeUnsigned(ByteArrayOutputStream out, int value) {
+      int remaining = value;
+      while ((remaining & ~0x7F) != 0) {
+        out.write((remaining & 0x7F) | 0x80);
+        remaining >>>= 7;
+      }
+      out.write(remaining);
+    }
+  }
+
+  private static final class Reader {
+
+    private final byte[] bytes;
+    private int position = 0;
+    private final String[] strings;
+    private final DeserializationContext ctx;
+    // ranges are read relative to this position
+    private int baseLine = 1;
+    private int baseLineOffset = 0;
+    private boolean insideNode = false;
+    @Nullable
+    private TreeMetaDataProvider metaDataProvider = null;
+
+    private Reader(byte[] bytes, DeserializationContext ctx, TextInterner textInterner) {
+      this.bytes = bytes;
+      this.ctx = ctx;
+      int version = readUnsigned();
+      if (version != FORMAT_VERSION) {
+        throw new IllegalStateException("Unsupported binary tree format version " + version + ", expected " + FORMAT_VERSION);
+      }
+      strings = new String[readUnsigned()];
+      for (int i = 0; i < strings.length; i++) {
+        int length = readUnsigned();
+        if (length > bytes.length - position) {
+          throw unexpectedEnd();
+        }
+        strings[i] = textInterner.intern(new String(bytes, position, length, StandardCharsets.UTF_8));
+        position += length;
+      }
+    }
+
+    private JsonObject readRoot() {
+      if (readByte() != OBJECT) {
+        throw new IllegalStateException("Invalid binary tree, expected an object at " + (position - 1));
+      }
+      JsonObject root = Json.object();
+      int size = readUnsigned();
+      for (int i = 0; i < size; i++) {
+        String name = readString();
+        JsonValue value = readValue(name);
+        root.add(name, value);
+        if (TREE_METADATA.equals(name) && value.isObject()) {
+          metaDataProvider = JsonTreeConverter.TREE_METADATA_PROVIDER_FROM_JSON.apply(ctx, value.asObject());
+          ctx.withMetaDataProvider(metaDataProvider);
+        }
+      }
+      if (position != bytes.length) {
+        throw new IllegalStateException("Invalid binary tree, unexpected data at " + position);
+      }
+      return root;
+    }
+
+    private JsonValue readValue(String memberName) {
+      int tag = readByte();
+      switch (tag) {
+        case NULL:
+          return Json.NULL;
+        case TRUE:
+          return Json.value(true);
+        case FALSE:
+          return Json.value(false);
+        case STRING:
+          return Json.value(readString());
+        case RANGE:
+          return Json.value(ctx.rangeText(readRange()));
+        case NUMBER:
+          return Json.parse(readString());
+        case ARRAY:
+          return readArray(memberName);
+        case OBJECT:
+          return readMembers(Json.object(), readUnsigned());
+        case NODE:
+          return readNode(memberName);
+        default:
+          throw new IllegalStateException("Invalid binary tree, unexpected value " + tag + " at " + (position - 1));
+      }
+    }
+
+    private JsonArray readArray(String memberName) {
+      JsonArray array = Json.array();
+      int size = readUnsigned();
+      String elementName = memberName + "[]";
+      for (int i = 0; i < size; i++) {
+        array.add(readValue(elementName));
+      }
+      return array;
+    }
+
+    private JsonObject readMembers(JsonObject object, int size) {
+      for (int i = 0; i < size; i++) {
+        String name = readString();
+        object.add(name, readValue(name));
+      }
+      return object;
+    }
+
+    private JsonObject readNode(String memberName) {
+      if (metaDataProvider == null) {
+        throw new IllegalStateException("Invalid binary tree, '" + TREE_METADATA + "' is expected before tree nodes");
+      }
+      String jsonType = readString();
+      TextRange range = readRange();
+      JsonObject json = Json.object()
+        .add(TYPE_ATTRIBUTE, jsonType)
+        .add(META_DATA, ctx.rangeText(range));
+
+      int parentBaseLine = baseLine;
+      int parentBaseLineOffset = baseLineOffset;
+      boolean parentInsideNode = insideNode;
+      baseLine = range.start().line();
+      baseLineOffset = range.start().lineOffset();
+      insideNode = true;
+      ctx.pushPath(memberName);
+      ctx.pushPath(jsonType);
+      readMembers(json, readUnsigned());
+      // the type is pushed again by the polymorphic converter
+      ctx.popPath();
+      Tree tree = POLYMORPHIC_CONVERTER.fromJson(ctx, jsonType, json, memberName, Tree.class);
+      JsonObject placeholder = ctx.addDeserializedTree(json, tree);
+      ctx.popPath();
+      baseLine = parentBaseLine;
+      baseLineOffset = parentBaseLineOffset;
+      insideNode = parentInsideNode;
+      return placeholder;
+    }
+
+    private TextRange readRange() {
+      int lineDelta = readSigned();
+      int startLine = baseLine + lineDelta;
+      int startLineOffset = lineDelta == 0 ? (baseLineOffset + readSigned()) : readSigned();
+      int lineCount = readSigned();
+      int endLine = startLine + lineCount;
+      int endLineOffset = lineCount == 0 ? (startLineOffset + readSigned()) : readSigned();
+      if (!insideNode) {
+        baseLine = startLine;
+        baseLineOffset = startLineOffset;
+      }
+      return new TextRangeImpl(startLine, startLineOffset, endLine, endLineOffset);
+    }
+
+    private String readString() {
+      int index = readUnsigned();
+      if (index >= strings.length) {
+        throw new IllegalStateException("Invalid binary tree, unexpected string " + index + " at " + position);
+      }
+      return strings[index];
+    }
+
+    private int readSigned() {
+      int value = readUnsigned();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int readUnsigned() {
+      int value = 0;
+      int shift = 0;
+      int b;
+      do {
+        b = readByte();
+        value |= (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0 && shift < 35);
+      return value;
+    }
+
+    private int readByte() {
+      if (position >= bytes.length) {
+        throw unexpectedEnd();
+      }
+      return bytes[position++] & 0xFF;
+    }
+
+    private static IllegalStateException unexpectedEnd() {
+      return new IllegalStateException("Invalid binary tree, unexpected end of data");
+    }
+  }
+
+}
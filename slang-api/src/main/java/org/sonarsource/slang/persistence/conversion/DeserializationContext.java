@@ -22,8 +22,11 @@ import com.eclipsesource.json.JsonValue;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import javax.annotation.Nullable;
@@ -32,6 +35,7 @@ import org.sonarsource.slang.api.TextRange;
 import org.sonarsource.slang.api.Token;
 import org.sonarsource.slang.api.Tree;
 import org.sonarsource.slang.api.TreeMetaData;
+import org.sonarsource.slang.impl.TextInterner;
 import org.sonarsource.slang.impl.TreeMetaDataProvider;
 
 public class DeserializationContext {
@@ -44,6 +48,14 @@ public class DeserializationContext {
 
   private TreeMetaDataProvider metaDataProvider = null;
 
+  private TextInterner textInterner = new TextInterner();
+
+  // trees deserialized while their json was streamed, by identity of their json object
+  private final Map<JsonObject, Tree> deserializedTrees = new IdentityHashMap<>();
+
+  // ranges of the range texts created by rangeText, by identity of their text
+  private final Map<String, TextRange> rangesByText = new IdentityHashMap<>();
+
   public DeserializationContext(PolymorphicConverter polymorphicConverter) {
     this.polymorphicConverter = polymorphicConverter;
   }
@@ -53,6 +65,45 @@ public class DeserializationContext {
     return this;
   }
 
+  public DeserializationContext withTextInterner(TextInterner textInterner) {
+    this.textInterner = textInterner;
+    return this;
+  }
+
+  /**
+   * Registers a tree already deserialized from the given json object. The given json object is not modified: the
+   * returned one, without the members holding the children of the tree which are not needed anymore, takes its place
+   * in the json of the parent, and the tree is returned instead of being deserialized again when it is read.
+   */
+  JsonObject addDeserializedTree(JsonObject json, Tree tree) {
+    JsonObject placeholder = new JsonObject();
+    for (JsonObject.Member member : json) {
+      JsonValue value = member.getValue();
+      if (!value.isObject() && !value.isArray()) {
+        placeholder.add(member.getName(), value);
+      }
+    }
+    deserializedTrees.put(placeholder, tree);
+    return placeholder;
+  }
+
+  /**
+   * Text of the given range, for readers which decode ranges themselves but hand them over as json strings to the
+   * converters of the nodes, like {@link BinaryTreeConverter}. When this very text instance is read back by this
+   * context, as the metadata, a token or a tree reference, its range is returned without parsing the text again.
+   * Range texts read from a json document are other instances, and are parsed.
+   */
+  String rangeText(TextRange range) {
+    String text = RangeConverter.format(range);
+    rangesByText.put(text, range);
+    return text;
+  }
+
+  private TextRange range(String text) {
+    TextRange range = rangesByText.get(text);
+    return range != null ? range : RangeConverter.parse(text);
+  }
+
   public void pushPath(String fieldName) {
     jsonPath.addLast(fieldName);
   }
@@ -66,7 +117,7 @@ public class DeserializationContext {
   }
 
   public TreeMetaData metaData(JsonObject json) {
-    return RangeConverter.resolveMetaData(metaDataProvider, fieldToString(json, "metaData"));
+    return metaDataProvider.metaData(range(fieldToString(json, "metaData")));
   }
 
   public RuntimeException newIllegalMemberException(String message, @Nullable Object illegalElement) {
@@ -150,21 +201,77 @@ public class DeserializationContext {
     return value.asString();
   }
 
+  /**
+   * Same as {@link #fieldToString(JsonObject, String)}, for texts that are likely to be repeated, like the ones
+   * of tokens and identifiers, returning the canonical instance of the text.
+   */
+  public String fieldToInternedString(JsonObject json, String fieldName) {
+    return textInterner.intern(fieldToString(json, fieldName));
+  }
+
   public String fieldToString(JsonObject json, String fieldName, String defaultValue){
     return json.getString(fieldName, defaultValue);
   }
 
   public TextRange fieldToRange(JsonObject json, String fieldName) {
-    return RangeConverter.parse(fieldToString(json, fieldName));
+    return range(fieldToString(json, fieldName));
+  }
+
+  /**
+   * Same as {@link RangeConverter#resolveNullableTree}, only going down the children of the parent whose range
+   * contains the referenced one, instead of going through all its descendants.
+   */
+  @Nullable
+  public <T extends Tree> T resolveNullableTree(Tree parent, @Nullable String treeReference, Class<T> childClass) {
+    if (treeReference == null) {
+      return null;
+    }
+    TextRange range = range(treeReference);
+    T tree = firstTree(parent, range, childClass);
+    if (tree == null) {
+      // children are not required to be inside the range of their parent, all the descendants are then searched
+      tree = parent.descendants()
+        .filter(child -> child.textRange().equals(range))
+        .filter(childClass::isInstance)
+        .map(childClass::cast)
+        .findFirst()
+        .orElse(null);
+    }
+    return tree;
+  }
+
+  @Nullable
+  private static <T extends Tree> T firstTree(Tree tree, TextRange range, Class<T> treeClass) {
+    if (tree.textRange().equals(range) && treeClass.isInstance(tree)) {
+      return treeClass.cast(tree);
+    }
+    for (Tree child : tree.children()) {
+      if (range.isInside(child.textRange())) {
+        T result = firstTree(child, range, treeClass);
+        if (result != null) {
+          return result;
+        }
+      }
+    }
+    return null;
   }
 
   public Token fieldToToken(JsonObject json, String fieldName) {
-    return RangeConverter.resolveToken(metaDataProvider, fieldToString(json, fieldName));
+    return token(fieldToString(json, fieldName));
   }
 
   @Nullable
   public Token fieldToNullableToken(JsonObject json, String fieldName) {
-    return RangeConverter.resolveToken(metaDataProvider, fieldToNullableString(json, fieldName));
+    String tokenReference = fieldToNullableString(json, fieldName);
+    return tokenReference == null ? null : token(tokenReference);
+  }
+
+  /**
+   * Same as {@link RangeConverter#resolveToken}, without parsing the ranges created by this context.
+   */
+  private Token token(String tokenReference) {
+    return metaDataProvider.firstToken(range(tokenReference))
+      .orElseThrow(() -> new NoSuchElementException("Token not found: " + tokenReference));
   }
 
   private <T> T object(JsonValue json, String memberName, Class<T> expectedClass) {
@@ -174,7 +281,13 @@ public class DeserializationContext {
     }
     JsonObject jsonObject = json.asObject();
     String jsonType = fieldToString(jsonObject, SerializationContext.TYPE_ATTRIBUTE);
-    T object = polymorphicConverter.fromJson(this, jsonType, jsonObject, memberName, expectedClass);
+    Tree deserializedTree = deserializedTrees.remove(jsonObject);
+    T object;
+    if (deserializedTree != null) {
+      object = polymorphicConverter.fromDeserialized(this, jsonType, deserializedTree, jsonObject, memberName, expectedClass);
+    } else {
+      object = polymorphicConverter.fromJson(this, jsonType, jsonObject, memberName, expectedClass);
+    }
     popPath();
     return object;
   }
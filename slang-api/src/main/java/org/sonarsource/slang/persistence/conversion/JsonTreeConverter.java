@@ -138,7 +138,7 @@ public final class JsonTreeConverter {
 
   public static final Deserialize<Token> TOKEN_FROM_JSON = (ctx, json) -> new TokenImpl(
     ctx.fieldToRange(json, TEXT_RANGE),
-    ctx.fieldToString(json, TEXT),
+    ctx.fieldToInternedString(json, TEXT),
     ctx.fieldToEnum(json, TYPE, OTHER, Token.Type.class));
 
   public static final Serialize<Comment> COMMENT_TO_JSON = (ctx, comment) -> Json.object()
@@ -216,13 +216,13 @@ public final class JsonTreeConverter {
     register(ClassDeclarationTreeImpl.class,
 
       (ctx, tree) -> ctx.newTypedObject(tree)
-        .add(IDENTIFIER, RangeConverter.treeReference(tree.identifier()))
+        .add(IDENTIFIER, ctx.toJsonReference(tree.identifier()))
         .add(CLASS_TREE, ctx.toJson(tree.classTree())),
 
       (ctx, json) -> {
         Tree classTree = ctx.fieldToObject(json, CLASS_TREE, Tree.class);
         String identifierReference = ctx.fieldToNullableString(json, IDENTIFIER);
-        IdentifierTree identifier = RangeConverter.resolveNullableTree(classTree, identifierReference, IdentifierTree.class);
+        IdentifierTree identifier = ctx.resolveNullableTree(classTree, identifierReference, IdentifierTree.class);
         return new ClassDeclarationTreeImpl(
           ctx.metaData(json),
           identifier,
@@ -272,7 +272,7 @@ public final class JsonTreeConverter {
 
       (ctx, json) -> new IdentifierTreeImpl(
         ctx.metaData(json),
-        ctx.fieldToString(json, NAME)));
+        ctx.fieldToInternedString(json, NAME)));
 
     register(IfTreeImpl.class,
 
@@ -66,11 +66,30 @@ public class PolymorphicConverter {
       throw ctx.newIllegalMemberException("Invalid '@type' value", jsonType);
     }
     Object object = converter.apply(ctx, json);
+    T result = cast(ctx, object, json, memberName, expectedClass);
+    ctx.popPath();
+    return result;
+  }
+
+  /**
+   * Same checks as {@link #fromJson}, for an object already deserialized from the given json.
+   */
+  <T> T fromDeserialized(DeserializationContext ctx, String jsonType, Object object, JsonObject json, String memberName, Class<T> expectedClass) {
+    ctx.pushPath(jsonType);
+    T result = cast(ctx, object, json, memberName, expectedClass);
+    ctx.popPath();
+    return result;
+  }
+
+  boolean supports(String jsonType) {
+    return fromJsonConverter.containsKey(jsonType);
+  }
+
+  private static <T> T cast(DeserializationContext ctx, Object object, JsonObject json, String memberName, Class<T> expectedClass) {
     if (!expectedClass.isInstance(object)) {
       throw ctx.newIllegalMemberException("Unexpected '" + object.getClass().getName() + "' type for member '" + memberName + "'" +
         " instead of '" + expectedClass.getName() + "'", json);
     }
-    ctx.popPath();
     return expectedClass.cast(object);
   }
 
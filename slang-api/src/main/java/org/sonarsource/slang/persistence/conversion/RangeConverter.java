@@ -27,6 +27,11 @@ import org.sonarsource.slang.api.TreeMetaData;
 import org.sonarsource.slang.impl.TextRangeImpl;
 import org.sonarsource.slang.impl.TreeMetaDataProvider;
 
+/**
+ * Formats and parses the references to ranges, tokens and trees of the json format of the trees, such as "3:7:4:12".
+ * These references are part of the persisted format, they are not replaced by packed positions. The binary format
+ * decodes its ranges itself, and hands them over to {@link DeserializationContext} without going through this parsing.
+ */
 public final class RangeConverter {
 
   private RangeConverter() {
@@ -37,11 +42,21 @@ public final class RangeConverter {
     if (range == null) {
       return null;
     }
+    return format(range, new StringBuilder(16)).toString();
+  }
+
+  /**
+   * Appends the reference of the given range to the buffer, for example "3:7:4:12", or "3:7::12" when it
+   * starts and ends on the same line.
+   */
+  public static StringBuilder format(TextRange range, StringBuilder buffer) {
     TextPointer start = range.start();
     TextPointer end = range.end();
-
-    String endLine = start.line() == end.line() ? "" : Integer.toString(end.line());
-    return start.line() + ":" + start.lineOffset() + ":" + endLine + ":" + end.lineOffset();
+    buffer.append(start.line()).append(':').append(start.lineOffset()).append(':');
+    if (start.line() != end.line()) {
+      buffer.append(end.line());
+    }
+    return buffer.append(':').append(end.lineOffset());
   }
 
   @Nullable
@@ -49,15 +64,71 @@ public final class RangeConverter {
     if (value == null) {
       return null;
     }
-    String[] values = value.split(":", 4);
-    if (values.length != 4) {
-      throw new IllegalArgumentException("Invalid TextRange '" + value + "'");
+    return parse(value, 0, value.length());
+  }
+
+  /**
+   * Parses the range reference between the start (inclusive) and end (exclusive) indexes, without creating
+   * intermediate strings.
+   */
+  public static TextRange parse(CharSequence value, int start, int end) {
+    return parse(value, null, start, end);
+  }
+
+  public static TextRange parse(char[] value, int start, int end) {
+    return parse(null, value, start, end);
+  }
+
+  private static TextRange parse(@Nullable CharSequence sequence, @Nullable char[] array, int start, int end) {
+    long startLine = number(sequence, array, start, end);
+    long startLineOffset = startLine < 0 || !isSeparator(sequence, array, (int) startLine, end) ? -1
+      : number(sequence, array, (int) startLine + 1, end);
+    long endLine = -1;
+    if (startLineOffset >= 0 && isSeparator(sequence, array, (int) startLineOffset, end)) {
+      int endLineStart = (int) startLineOffset + 1;
+      if (isSeparator(sequence, array, endLineStart, end)) {
+        // empty end line: same line as the start
+        endLine = (startLine >>> 32) << 32 | endLineStart;
+      } else {
+        endLine = number(sequence, array, endLineStart, end);
+      }
+    }
+    long endLineOffset = endLine < 0 || !isSeparator(sequence, array, (int) endLine, end) ? -1
+      : number(sequence, array, (int) endLine + 1, end);
+    if (endLineOffset < 0 || (int) endLineOffset != end) {
+      CharSequence text = sequence != null ? sequence.subSequence(start, end) : new String(array, start, end - start);
+      throw new IllegalArgumentException("Invalid TextRange '" + text + "'");
+    }
+    return new TextRangeImpl((int) (startLine >>> 32), (int) (startLineOffset >>> 32), (int) (endLine >>> 32), (int) (endLineOffset >>> 32));
+  }
+
+  /**
+   * Value of the number at the given position, in the high 32 bits, and the position after it, in the low 32 bits.
+   * -1 when there is no number or when it overflows an int.
+   */
+  private static long number(@Nullable CharSequence sequence, @Nullable char[] array, int position, int end) {
+    long value = 0;
+    int index = position;
+    while (index < end) {
+      char c = charAt(sequence, array, index);
+      if (c < '0' || c > '9') {
+        break;
+      }
+      value = value * 10 + (c - '0');
+      if (value > Integer.MAX_VALUE) {
+        return -1;
+      }
+      index++;
     }
-    int startLine = Integer.parseInt(values[0]);
-    int startLineOffset = Integer.parseInt(values[1]);
-    int endLine = values[2].isEmpty() ? startLine : Integer.parseInt(values[2]);
-    int endLineOffset = Integer.parseInt(values[3]);
-    return new TextRangeImpl(startLine, startLineOffset, endLine, endLineOffset);
+    return index == position ? -1 : (value << 32 | index);
+  }
+
+  private static boolean isSeparator(@Nullable CharSequence sequence, @Nullable char[] array, int position, int end) {
+    return position < end && charAt(sequence, array, position) == ':';
+  }
+
+  private static char charAt(@Nullable CharSequence sequence, @Nullable char[] array, int index) {
+    return array != null ? array[index] : sequence.charAt(index);
   }
 
   @Nullable
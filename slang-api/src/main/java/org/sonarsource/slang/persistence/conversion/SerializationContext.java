@@ -20,8 +20,11 @@ import com.eclipsesource.json.Json;
 import com.eclipsesource.json.JsonArray;
 import com.eclipsesource.json.JsonObject;
 import com.eclipsesource.json.JsonValue;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.BiFunction;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonarsource.slang.api.NativeKind;
 import org.sonarsource.slang.api.TextRange;
@@ -34,10 +37,33 @@ public class SerializationContext {
 
   private final PolymorphicConverter polymorphicConverter;
 
+  private final StringBuilder rangeBuffer = new StringBuilder();
+
+  // ranges written by this context, by identity of their text, when they are tracked
+  @Nullable
+  private Map<String, TextRange> writtenRanges = null;
+
   public SerializationContext(PolymorphicConverter polymorphicConverter) {
     this.polymorphicConverter = polymorphicConverter;
   }
 
+  /**
+   * Keeps the ranges written by this context, so that {@link #writtenRange(String)} tells them apart from
+   * other strings without parsing them.
+   */
+  SerializationContext withRangeTracking() {
+    writtenRanges = new IdentityHashMap<>();
+    return this;
+  }
+
+  /**
+   * Range written by this context as the given text instance, when ranges are tracked.
+   */
+  @CheckForNull
+  TextRange writtenRange(String text) {
+    return writtenRanges == null ? null : writtenRanges.get(text);
+  }
+
   public JsonObject newTypedObject(Tree tree) {
     String jsonType = polymorphicConverter.getJsonType(tree);
     if (jsonType == null) {
@@ -45,7 +71,7 @@ public class SerializationContext {
     }
     return Json.object()
       .add(TYPE_ATTRIBUTE, jsonType)
-      .add("metaData", RangeConverter.metaDataReference(tree));
+      .add("metaData", toJson(tree.metaData().textRange()));
   }
 
   public <T extends Tree> JsonValue toJson(@Nullable T object) {
@@ -53,7 +79,14 @@ public class SerializationContext {
   }
 
   public JsonValue toJson(@Nullable Token token) {
-    return Json.value(RangeConverter.tokenReference(token));
+    return toJson(token == null ? null : token.textRange());
+  }
+
+  /**
+   * Reference to the given tree, resolved with {@link DeserializationContext#resolveNullableTree}.
+   */
+  public JsonValue toJsonReference(@Nullable Tree tree) {
+    return toJson(tree == null ? null : tree.metaData().textRange());
   }
 
   public JsonValue toJson(Enum<?> entry) {
@@ -65,7 +98,15 @@ public class SerializationContext {
   }
 
   public JsonValue toJson(@Nullable TextRange range) {
-    return Json.value(RangeConverter.format(range));
+    if (range == null) {
+      return Json.NULL;
+    }
+    rangeBuffer.setLength(0);
+    String text = RangeConverter.format(range, rangeBuffer).toString();
+    if (writtenRanges != null) {
+      writtenRanges.put(text, range);
+    }
+    return Json.value(text);
   }
 
   public <T extends Tree> JsonArray toJsonArray(List<T> nodes) {
@@ -0,0 +1,270 @@
+/*
+ * SonarSource SLang
+ * Copyright (C) 2018-2026 SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.slang.persistence.conversion;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonHandler;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonParser;
+import com.eclipsesource.json.JsonValue;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.sonarsource.slang.api.Comment;
+import org.sonarsource.slang.api.Token;
+import org.sonarsource.slang.api.Tree;
+import org.sonarsource.slang.impl.TextInterner;
+import org.sonarsource.slang.impl.TreeMetaDataProvider;
+
+import static org.sonarsource.slang.persistence.conversion.JsonTreeConverter.COMMENTS;
+import static org.sonarsource.slang.persistence.conversion.JsonTreeConverter.COMMENT_FROM_JSON;
+import static org.sonarsource.slang.persistence.conversion.JsonTreeConverter.POLYMORPHIC_CONVERTER;
+import static org.sonarsource.slang.persistence.conversion.JsonTreeConverter.TOKENS;
+import static org.sonarsource.slang.persistence.conversion.JsonTreeConverter.TOKEN_FROM_JSON;
+
+/**
+ * Deserializes a tree while its json is parsed, without first building the json objects of the whole file.
+ * <p>
+ * Comments and tokens of "treeMetaData" are converted as soon as they are read. Each tree node is then converted,
+ * through the usual {@link PolymorphicConverter} dispatch on its "@type", as soon as its json object ends, and the
+ * members holding its children are dropped: only the json of the nodes not yet attached to their parent is kept.
+ * Parts of the json not laid out like {@link org.sonarsource.slang.persistence.JsonTree#toJson} writes them,
+ * like a "tree" before "treeMetaData" or a "@type" after children, are deserialized from json objects as before.
+ */
+public final class StreamingTreeDeserializer {
+
+  private static final String TREE_METADATA = "treeMetaData";
+  private static final String TREE = "tree";
+
+  private StreamingTreeDeserializer() {
+  }
+
+  public static Tree fromJson(String json, TextInterner textInterner) {
+    DeserializationContext ctx = new DeserializationContext(POLYMORPHIC_CONVERTER).withTextInterner(textInterner);
+    Handler handler = new Handler(ctx);
+    new JsonParser(handler).parse(json);
+    JsonObject root = handler.value.asObject();
+    TreeMetaDataProvider metaDataProvider = handler.metaDataProvider;
+    if (metaDataProvider == null) {
+      metaDataProvider = JsonTreeConverter.TREE_METADATA_PROVIDER_FROM_JSON.apply(ctx, root.get(TREE_METADATA).asObject());
+      ctx.withMetaDataProvider(metaDataProvider);
+    }
+    Tree tree = ctx.fieldToNullableObject(root, TREE, Tree.class);
+    metaDataProvider.freeze();
+    return tree;
+  }
+
+  private enum Role {
+    ROOT,
+    TREE_METADATA,
+    COMMENTS,
+    COMMENT,
+    TOKENS,
+    TOKEN,
+    TREE,
+    TREE_LIST,
+    OTHER
+  }
+
+  private static final class Frame {
+
+    @Nullable
+    private final Frame parent;
+    private final Role role;
+    private final JsonValue json;
+    // path member name of TREE and TREE_LIST frames
+    @Nullable
+    private final String memberName;
+    // name of the member being read, for object frames
+    @Nullable
+    private String pendingName = null;
+    // "@type" of TREE frames, once read and if supported
+    @Nullable
+    private String jsonType = null;
+    @Nullable
+    private List<Comment> comments = null;
+    @Nullable
+    private List<Token> tokens = null;
+
+    private Frame(@Nullable Frame parent, Role role, JsonValue json, @Nullable String memberName) {
+      this.parent = parent;
+      this.role = role;
+      this.json = json;
+      this.memberName = memberName;
+    }
+
+    private boolean isTreeWithKnownType() {
+      return role == Role.TREE && jsonType != null;
+    }
+  }
+
+  private static final class Handler extends JsonHandler<Frame, Frame> {
+
+    private final DeserializationContext ctx;
+
+    @Nullable
+    private Frame current = null;
+
+    // last value read, null when it has already been converted and must not be added to its parent
+    @Nullable
+    private JsonValue value = null;
+
+    @Nullable
+    private TreeMetaDataProvider metaDataProvider = null;
+
+    private Handler(DeserializationContext ctx) {
+      this.ctx = ctx;
+    }
+
+    @Override
+    public void endNull() {
+      value = Json.NULL;
+    }
+
+    @Override
+    public void endBoolean(boolean bool) {
+      value = Json.value(bool);
+    }
+
+    @Override
+    public void endString(String string) {
+      value = Json.value(string);
+    }
+
+    @Override
+    public void endNumber(String string) {
+      value = Json.parse(string);
+    }
+
+    @Override
+    public Frame startArray() {
+      Frame parent = current;
+      Role role = Role.OTHER;
+      String memberName = null;
+      if (parent != null && parent.role == Role.TREE_METADATA && COMMENTS.equals(parent.pendingName)) {
+        role = Role.COMMENTS;
+        parent.comments = new ArrayList<>();
+      } else if (parent != null && parent.role == Role.TREE_METADATA && TOKENS.equals(parent.pendingName)) {
+        role = Role.TOKENS;
+        parent.tokens = new ArrayList<>();
+      } else if (parent != null && parent.isTreeWithKnownType()) {
+        role = Role.TREE_LIST;
+        memberName = parent.pendingName + "[]";
+      }
+      current = new Frame(parent, role, Json.array(), memberName);
+      return current;
+    }
+
+    @Override
+    public void endArrayValue(Frame frame) {
+      if (value == null) {
+        return;
+      }
+      if (frame.role == Role.COMMENTS || frame.role == Role.TOKENS) {
+        // fails like the deserialization from json objects for elements which are not objects
+        value.asObject();
+      }
+      frame.json.asArray().add(value);
+    }
+
+    @Override
+    public void endArray(Frame frame) {
+      current = frame.parent;
+      value = frame.json;
+    }
+
+    @Override
+    public Frame startObject() {
+      Frame parent = current;
+      Role role = Role.OTHER;
+      String memberName = null;
+      if (parent == null) {
+        role = Role.ROOT;
+      } else if (parent.role == Role.ROOT && TREE_METADATA.equals(parent.pendingName) && metaDataProvider == null) {
+        role = Role.TREE_METADATA;
+      } else if (parent.role == Role.ROOT && TREE.equals(parent.pendingName) && metaDataProvider != null) {
+        role = Role.TREE;
+        memberName = TREE;
+      } else if (parent.role == Role.COMMENTS) {
+        role = Role.COMMENT;
+      } else if (parent.role == Role.TOKENS) {
+        role = Role.TOKEN;
+      } else if (parent.isTreeWithKnownType()) {
+        role = Role.TREE;
+        memberName = parent.pendingName;
+      } else if (parent.role == Role.TREE_LIST) {
+        role = Role.TREE;
+        memberName = parent.memberName;
+      }
+      if (role == Role.TREE) {
+        ctx.pushPath(memberName);
+      }
+      current = new Frame(parent, role, Json.object(), memberName);
+      return current;
+    }
+
+    @Override
+    public void startObjectValue(Frame frame, String name) {
+      frame.pendingName = name;
+    }
+
+    @Override
+    public void endObjectValue(Frame frame, String name) {
+      if (value == null) {
+        return;
+      }
+      if (frame.role == Role.TREE && frame.jsonType == null && SerializationContext.TYPE_ATTRIBUTE.equals(name)
+        && value.isString() && POLYMORPHIC_CONVERTER.supports(value.asString())) {
+        frame.jsonType = value.asString();
+        ctx.pushPath(frame.jsonType);
+      }
+      frame.json.asObject().add(name, value);
+    }
+
+    @Override
+    public void endObject(Frame frame) {
+      current = frame.parent;
+      JsonObject json = frame.json.asObject();
+      value = json;
+      if (frame.role == Role.TREE_METADATA) {
+        List<Comment> comments = frame.comments != null ? frame.comments : ctx.objectList(json.get(COMMENTS), COMMENT_FROM_JSON);
+        List<Token> tokens = frame.tokens != null ? frame.tokens : ctx.objectList(json.get(TOKENS), TOKEN_FROM_JSON);
+        metaDataProvider = new TreeMetaDataProvider(comments, tokens);
+        ctx.withMetaDataProvider(metaDataProvider);
+      } else if (frame.role == Role.COMMENT) {
+        metaDataFrame(frame).comments.add(COMMENT_FROM_JSON.apply(ctx, json));
+        value = null;
+      } else if (frame.role == Role.TOKEN) {
+        metaDataFrame(frame).tokens.add(TOKEN_FROM_JSON.apply(ctx, json));
+        value = null;
+      } else if (frame.role == Role.TREE) {
+        if (frame.jsonType != null) {
+          // the type is pushed again by the polymorphic converter
+          ctx.popPath();
+          Tree tree = POLYMORPHIC_CONVERTER.fromJson(ctx, frame.jsonType, json, frame.memberName, Tree.class);
+          value = ctx.addDeserializedTree(json, tree);
+        }
+        ctx.popPath();
+      }
+    }
+
+    private static Frame metaDataFrame(Frame elementFrame) {
+      return elementFrame.parent.parent;
+    }
+  }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * SonarSource SLang
+ * Copyright (C) 2018-2026 SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.slang.utils;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * Set of line numbers backed by a {@link BitSet}, so that lines are neither boxed nor hashed when they are added
+ * or iterated with {@link #forEachLine(IntConsumer)}. Iteration is in ascending order.
+ * <p>
+ * Line numbers can not be negative: adding one throws an {@link IllegalArgumentException}, and such a line is never
+ * contained in the set.
+ */
+public final class LineSet extends AbstractSet<Integer> {
+
+  private final BitSet lines;
+
+  private final boolean modifiable;
+
+  public LineSet() {
+    this(new BitSet(), true);
+  }
+
+  private LineSet(BitSet lines, boolean modifiable) {
+    this.lines = lines;
+    this.modifiable = modifiable;
+  }
+
+  /**
+   * Read-only view of this set: lines added to this set are visible in the view, adding lines to the view throws an
+   * {@link UnsupportedOperationException}.
+   */
+  public LineSet unmodifiableView() {
+    return modifiable ? new LineSet(lines, false) : this;
+  }
+
+  public boolean add(int line) {
+    checkModifiable();
+    checkLine(line);
+    if (lines.get(line)) {
+      return false;
+    }
+    lines.set(line);
+    return true;
+  }
+
+  /**
+   * Adds all the lines from {@code firstLine} to {@code lastLine}, both included.
+   */
+  public void addRange(int firstLine, int lastLine) {
+    checkModifiable();
+    if (firstLine <= lastLine) {
+      checkLine(firstLine);
+      lines.set(firstLine, lastLine + 1);
+    }
+  }
+
+  private void checkModifiable() {
+    if (!modifiable) {
+      throw new UnsupportedOperationException("Unmodifiable line set");
+    }
+  }
+
+  private static void checkLine(int line) {
+    if (line < 0) {
+      throw new IllegalArgumentException("Line numbers can not be negative: " + line);
+    }
+  }
+
+  @Override
+  public boolean add(Integer line) {
+    return add(line.intValue());
+  }
+
+  @Override
+  public boolean addAll(Collection<? extends Integer> other) {
+    checkModifiable();
+    if (other instanceof LineSet otherLines) {
+      int sizeBefore = size();
+      lines.or(otherLines.lines);
+      return size() != sizeBefore;
+    }
+    return super.addAll(other);
+  }
+
+  public boolean contains(int line) {
+    return line >= 0 && lines.get(line);
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return o instanceof Integer line && contains(line.intValue());
+  }
+
+  public void forEachLine(IntConsumer consumer) {
+    for (int line = lines.nextSetBit(0); line >= 0; line = lines.nextSetBit(line + 1)) {
+      consumer.accept(line);
+    }
+  }
+
+  @Override
+  public int size() {
+    return lines.cardinality();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return lines.isEmpty();
+  }
+
+  @Override
+  public Iterator<Integer> iterator() {
+    return new Iterator<>() {
+      private int next = lines.nextSetBit(0);
+
+      @Override
+      public boolean hasNext() {
+        return next >= 0;
+      }
+
+      @Override
+      public Integer next() {
+        if (next < 0) {
+          throw new NoSuchElementException();
+        }
+        int line = next;
+        next = lines.nextSetBit(line + 1);
+        return line;
+      }
+    };
+  }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * SonarSource SLang
+ * Copyright (C) 2018-2026 SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.slang.visitors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.ObjLongConsumer;
+import javax.annotation.Nullable;
+import org.sonarsource.slang.api.Tree;
+
+/**
+ * Runs several visitors in a single depth-first traversal, instead of one traversal per visitor.
+ * <p>
+ * The {@code before} methods of the visitors are all called before the traversal, and their {@code after} methods
+ * once the whole tree has been visited, in the order of the visitors. On each node, the consumers are called in the
+ * order of the visitors, then in their registration order.
+ * <p>
+ * A visitor which throws an exception is not called anymore until the end of the current scan, except for its
+ * {@link TreeVisitor#afterFailure(TreeContext, Tree)} method: the exception is given to the failure handler and the
+ * other visitors go on.
+ */
+public class CompositeTreeVisitor<C extends TreeContext> extends TreeVisitor<C> {
+
+  private enum Phase {
+    BEFORE,
+    DISPATCH,
+    AFTER
+  }
+
+  private final List<TreeVisitor<C>> visitors;
+
+  private final BiConsumer<C, RuntimeException> failureHandler;
+
+  @Nullable
+  private final ObjLongConsumer<TreeVisitor<C>> durationRecorder;
+
+  private boolean[] failed;
+
+  private long[] durations;
+
+  @Nullable
+  private Tree root;
+
+  public CompositeTreeVisitor(List<? extends TreeVisitor<C>> visitors, BiConsumer<C, RuntimeException> failureHandler) {
+    this(visitors, failureHandler, null);
+  }
+
+  /**
+   * @param durationRecorder if not null, given at the end of each scan the time spent in each visitor, in nanoseconds
+   */
+  public CompositeTreeVisitor(List<? extends TreeVisitor<C>> visitors, BiConsumer<C, RuntimeException> failureHandler,
+    @Nullable ObjLongConsumer<TreeVisitor<C>> durationRecorder) {
+    this.visitors = new ArrayList<>(visitors);
+    this.failureHandler = failureHandler;
+    this.durationRecorder = durationRecorder;
+    this.failed = new boolean[this.visitors.size()];
+    this.durations = new long[this.visitors.size()];
+  }
+
+  /**
+   * A subtree is visited when any of the visitors which have not failed is interested in it.
+   */
+  @Override
+  boolean isInterestedIn(Tree node) {
+    for (int i = 0; i < visitors.size(); i++) {
+      if (!failed[i] && visitors.get(i).isInterestedIn(node)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  void dispatch(C ctx, Tree node) {
+    forEachVisitor(Phase.DISPATCH, ctx, node);
+  }
+
+  @Override
+  protected void before(C ctx, Tree root) {
+    this.root = root;
+    failed = new boolean[visitors.size()];
+    durations = new long[visitors.size()];
+    forEachVisitor(Phase.BEFORE, ctx, root);
+  }
+
+  @Override
+  protected void after(C ctx, Tree root) {
+    forEachVisitor(Phase.AFTER, ctx, root);
+    if (durationRecorder != null) {
+      for (int i = 0; i < visitors.size(); i++) {
+        durationRecorder.accept(visitors.get(i), durations[i]);
+      }
+    }
+    this.root = null;
+  }
+
+  // no lambda here, as it is called on each node of the tree
+  private void forEachVisitor(Phase phase, C ctx, Tree node) {
+    for (int i = 0; i < visitors.size(); i++) {
+      if (!failed[i]) {
+        TreeVisitor<C> visitor = visitors.get(i);
+        long startTime = durationRecorder == null ? 0L : System.nanoTime();
+        try {
+          if (phase == Phase.DISPATCH) {
+            visitor.dispatch(ctx, node);
+          } else if (phase == Phase.BEFORE) {
+            visitor.before(ctx, node);
+          } else {
+            visitor.after(ctx, node);
+          }
+        } catch (RuntimeException e) {
+          failed[i] = true;
+          failureHandler.accept(ctx, e);
+          if (phase != Phase.AFTER) {
+            visitor.afterFailure(ctx, root);
+          }
+        }
+        if (durationRecorder != null) {
+          durations[i] += System.nanoTime() - startTime;
+        }
+      }
+    }
+  }
+
+}
@@ -16,25 +16,78 @@
  */
 package org.sonarsource.slang.visitors;
 
+import org.sonarsource.slang.api.ClassDeclarationTree;
+import org.sonarsource.slang.api.FunctionDeclarationTree;
+import org.sonarsource.slang.api.LoopTree;
+import org.sonarsource.slang.api.MatchTree;
 import org.sonarsource.slang.api.Tree;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.List;
+import javax.annotation.CheckForNull;
 
 public class TreeContext {
 
+  /**
+   * Kinds of nodes for which the entered nodes are tracked, so that the innermost ancestor of these kinds
+   * is known without going through all the ancestors.
+   */
+  private static final List<Class<? extends Tree>> TRACKED_KINDS = List.of(
+    FunctionDeclarationTree.class,
+    ClassDeclarationTree.class,
+    LoopTree.class,
+    MatchTree.class);
+
   private final Deque<Tree> ancestors;
+  private final List<Deque<Tree>> enteredNodesByKind;
   private Tree current;
 
   public TreeContext() {
     ancestors = new ArrayDeque<>();
+    enteredNodesByKind = new ArrayList<>(TRACKED_KINDS.size());
+    for (int i = 0; i < TRACKED_KINDS.size(); i++) {
+      enteredNodesByKind.add(new ArrayDeque<>());
+    }
   }
 
   public Deque<Tree> ancestors() {
     return ancestors;
   }
 
+  /**
+   * Innermost ancestor of the current node which is an instance of the given kind. This does not go through
+   * all the ancestors for functions, classes, loops and matches.
+   */
+  @CheckForNull
+  public <T extends Tree> T innermostAncestor(Class<T> kind) {
+    int kindIndex = TRACKED_KINDS.indexOf(kind);
+    if (kindIndex < 0) {
+      return ancestors.stream()
+        .filter(kind::isInstance)
+        .map(kind::cast)
+        .findFirst()
+        .orElse(null);
+    }
+    Deque<Tree> enteredNodes = enteredNodesByKind.get(kindIndex);
+    Tree innermost = null;
+    for (Tree node : enteredNodes) {
+      // the current node is not one of its own ancestors, this loop has at most two iterations
+      if (node != current) {
+        innermost = node;
+        break;
+      }
+    }
+    return kind.cast(innermost);
+  }
+
+  public boolean hasAncestor(Class<? extends Tree> kind) {
+    return innermostAncestor(kind) != null;
+  }
+
   protected void before(Tree root) {
     ancestors.clear();
+    enteredNodesByKind.forEach(Deque::clear);
   }
 
   public void enter(Tree node) {
@@ -42,9 +95,19 @@ public class TreeContext {
       ancestors.push(current);
     }
     current = node;
+    for (int i = 0; i < TRACKED_KINDS.size(); i++) {
+      if (TRACKED_KINDS.get(i).isInstance(node)) {
+        enteredNodesByKind.get(i).push(node);
+      }
+    }
   }
 
   public void leave(Tree node) {
+    for (Deque<Tree> enteredNodes : enteredNodesByKind) {
+      if (enteredNodes.peek() == node) {
+        enteredNodes.pop();
+      }
+    }
     if (!ancestors.isEmpty()) {
       current = ancestors.pop();
     }
@@ -0,0 +1,93 @@
+/*
+ * SonarSource SLang
+ * Copyright (C) 2018-2026 SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.slang.visitors;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import javax.annotation.CheckForNull;
+import org.sonarsource.slang.api.Tree;
+
+/**
+ * Depth-first, pre-order traversals of trees, using an explicit stack instead of recursion so that deeply nested
+ * trees cannot overflow the call stack. Null children are skipped.
+ */
+public final class TreeTraversal {
+
+  private TreeTraversal() {
+  }
+
+  /**
+   * Calls {@link TreeContext#enter(Tree)} then the visitor on each node, before visiting its children,
+   * and {@link TreeContext#leave(Tree)} once all its children have been visited.
+   */
+  public static <C extends TreeContext> void traverse(C ctx, Tree root, BiConsumer<C, Tree> visitor) {
+    traverse(ctx, root, visitor, child -> true);
+  }
+
+  /**
+   * Same as {@link #traverse(TreeContext, Tree, BiConsumer)}, skipping the subtrees whose root does not match
+   * the given predicate. The root itself is always visited.
+   */
+  public static <C extends TreeContext> void traverse(C ctx, Tree root, BiConsumer<C, Tree> visitor, Predicate<Tree> shouldEnter) {
+    Deque<Frame> stack = new ArrayDeque<>();
+    ctx.enter(root);
+    visitor.accept(ctx, root);
+    stack.push(new Frame(root));
+    while (!stack.isEmpty()) {
+      Frame frame = stack.peek();
+      Tree child = frame.nextChild();
+      if (child == null) {
+        stack.pop();
+        ctx.leave(frame.node);
+      } else if (shouldEnter.test(child)) {
+        ctx.enter(child);
+        visitor.accept(ctx, child);
+        stack.push(new Frame(child));
+      }
+    }
+  }
+
+  private static class Frame {
+
+    private final Tree node;
+
+    private final List<Tree> children;
+
+    private int index = 0;
+
+    private Frame(Tree node) {
+      this.node = node;
+      this.children = node.children();
+    }
+
+    @CheckForNull
+    private Tree nextChild() {
+      while (index < children.size()) {
+        Tree child = children.get(index);
+        index++;
+        if (child != null) {
+          return child;
+        }
+      }
+      return null;
+    }
+  }
+
+}
@@ -17,8 +17,11 @@
 package org.sonarsource.slang.visitors;
 
 import org.sonarsource.slang.api.Tree;
+import org.sonarsource.slang.impl.TreeKinds;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.BiConsumer;
 import javax.annotation.Nullable;
 
@@ -26,6 +29,22 @@ public class TreeVisitor<C extends TreeContext> {
 
   private List<ConsumerFilter<C, ?>> consumers;
 
+  /**
+   * For each concrete class of node, the consumers which apply to it, in registration order.
+   * Filled lazily while scanning, so that only the relevant consumers are called on each node, and cleared when a
+   * consumer is registered.
+   */
+  private final Map<Class<?>, List<ConsumerFilter<C, ?>>> consumersByNodeClass = new HashMap<>();
+
+  /**
+   * Union of the kinds of nodes the consumers apply to, see {@link TreeKinds}: the classes given to
+   * {@link #register(Class, BiConsumer)} declare the kinds of nodes this visitor cares about. Subtrees without any of
+   * these kinds are not visited, unless a consumer applies to nodes of unknown kinds, like {@link Tree} itself.
+   */
+  private long consumedKinds = 0L;
+
+  private boolean consumesUnknownKinds = false;
+
   public TreeVisitor() {
     consumers = null;
   }
@@ -34,21 +53,36 @@ public class TreeVisitor<C extends TreeContext> {
     if (root != null) {
       ctx.before(root);
       before(ctx, root);
-      visit(ctx, root);
+      try {
+        TreeTraversal.traverse(ctx, root, this::dispatch, this::isInterestedIn);
+      } catch (RuntimeException e) {
+        afterFailure(ctx, root);
+        throw e;
+      }
       after(ctx, root);
     }
   }
- 
-  private void visit(C ctx, @Nullable Tree node) {
-    if (node != null) {
-      ctx.enter(node);
-      if (consumers != null) {
-        for (ConsumerFilter<C, ?> consumer : consumers) {
-          consumer.accept(ctx, node);
-        }
+
+  /**
+   * Whether a consumer may apply to the given node or to one of its descendants.
+   */
+  boolean isInterestedIn(Tree node) {
+    return consumesUnknownKinds || (TreeKinds.subtreeKinds(node) & consumedKinds) != 0;
+  }
+
+  /**
+   * Calls, in registration order, the consumers which apply to the given node.
+   */
+  void dispatch(C ctx, Tree node) {
+    if (consumers != null) {
+      List<ConsumerFilter<C, ?>> nodeConsumers = consumersByNodeClass.get(node.getClass());
+      if (nodeConsumers == null) {
+        nodeConsumers = consumersOf(node.getClass());
+        consumersByNodeClass.put(node.getClass(), nodeConsumers);
+      }
+      for (ConsumerFilter<C, ?> consumer : nodeConsumers) {
+        consumer.accept(ctx, node);
       }
-      node.children().forEach(child -> visit(ctx, child));
-      ctx.leave(node);
     }
   }
 
@@ -60,14 +94,34 @@ public class TreeVisitor<C extends TreeContext> {
     // default behaviour is to do nothing
   }
 
+  /**
+   * Called instead of {@link #after(TreeContext, Tree)} when a consumer of this visitor has thrown an exception,
+   * which stopped the scan of the tree.
+   */
+  protected void afterFailure(C ctx, Tree root) {
+    // default behaviour is to do nothing
+  }
+
   public <T extends Tree> TreeVisitor<C> register(Class<T> cls, BiConsumer<C, T> visitor) {
     if (consumers == null) {
       consumers = new ArrayList<>();
     }
     consumers.add(new ConsumerFilter<>(cls, visitor));
+    long kinds = TreeKinds.kindsOf(cls);
+    if (kinds == 0L) {
+      consumesUnknownKinds = true;
+    }
+    consumedKinds |= kinds;
+    consumersByNodeClass.clear();
     return this;
   }
 
+  private List<ConsumerFilter<C, ?>> consumersOf(Class<?> nodeClass) {
+    return consumers.stream()
+      .filter(consumer -> consumer.cls.isAssignableFrom(nodeClass))
+      .toList();
+  }
+
   private static class ConsumerFilter<C extends TreeContext, T extends Tree> {
 
     private final Class<T> cls;
@@ -79,10 +133,10 @@ public class TreeVisitor<C extends TreeContext> {
       this.delegate = delegate;
     }
 
+    @SuppressWarnings("unchecked")
     private void accept(C ctx, Tree node) {
-      if (cls.isAssignableFrom(node.getClass())) {
-        delegate.accept(ctx, cls.cast(node));
-      }
+      // only called on nodes of a class assignable to cls, see consumersByNodeClass
+      delegate.accept(ctx, (T) node);
     }
 
   }
@@ -58,4 +58,15 @@ class TreeTest {
       .containsExactly(y, xEqualTo1, x, int1);
   }
 
+  @Test
+  void descendants_of_deeply_nested_tree() {
+    Tree x = identifier("x");
+    Tree tree = integerLiteral("1");
+    for (int i = 0; i < 100_000; i++) {
+      tree = binary(EQUAL_TO, tree, x);
+    }
+    assertThat(tree.descendants()).hasSize(200_000);
+    assertThat(tree.descendants().anyMatch(x::equals)).isTrue();
+  }
+
 }
@@ -22,6 +22,7 @@ import org.sonarsource.slang.api.TreeMetaData;
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class IfTreeImplTest {
 
@@ -35,6 +36,10 @@ class IfTreeImplTest {
     TokenImpl elseToken = new TokenImpl(new TextRangeImpl(2, 0, 1, 4), "else", Token.Type.KEYWORD);
     IfTreeImpl tree = new IfTreeImpl(meta, condition, thenBranch, elseBranch, ifToken, elseToken);
     assertThat(tree.children()).containsExactly(condition, thenBranch, elseBranch);
+    assertThat(tree.children()).isSameAs(tree.children());
+    assertThatThrownBy(() -> tree.children().add(condition)).isInstanceOf(UnsupportedOperationException.class);
+    assertThat(tree.children().contains(null)).isFalse();
+    assertThat(tree.children().indexOf(null)).isEqualTo(-1);
     assertThat(tree.condition()).isEqualTo(condition);
     assertThat(tree.thenBranch()).isEqualTo(thenBranch);
     assertThat(tree.elseBranch()).isEqualTo(elseBranch);
@@ -0,0 +1,57 @@
+/*
+ * SonarSource SLang
+ * Copyright (C) 2018-2026 SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.slang.impl;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TextInternerTest {
+
+  @Test
+  void same_instance_for_equal_texts() {
+    TextInterner interner = new TextInterner();
+    String first = interner.intern(new String("foo"));
+    assertThat(interner.intern(new String("foo"))).isSameAs(first);
+    assertThat(interner.intern("bar")).isEqualTo("bar");
+    assertThat(interner.size()).isEqualTo(2);
+    assertThat(interner.maxSize()).isEqualTo(TextInterner.DEFAULT_MAX_SIZE);
+  }
+
+  @Test
+  void bounded() {
+    TextInterner interner = new TextInterner(2);
+    String foo = interner.intern(new String("foo"));
+    String bar = interner.intern(new String("bar"));
+    assertThat(interner.size()).isEqualTo(2);
+
+    // a new text evicts the previous ones
+    String baz = interner.intern(new String("baz"));
+    assertThat(interner.size()).isEqualTo(1);
+    assertThat(interner.intern(new String("baz"))).isSameAs(baz);
+    assertThat(interner.intern(new String("foo"))).isNotSameAs(foo).isEqualTo("foo");
+    assertThat(interner.size()).isEqualTo(2);
+    assertThat(interner.intern(new String("bar"))).isNotSameAs(bar).isEqualTo("bar");
+    assertThat(interner.size()).isEqualTo(1);
+
+    assertThatThrownBy(() -> new TextInterner(0))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Invalid max size 0, expected a positive value");
+  }
+
+}
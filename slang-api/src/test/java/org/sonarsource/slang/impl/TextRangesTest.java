@@ -39,6 +39,16 @@ class TextRangesTest {
       TextRangesTest::merge);
   }
 
+  @Test
+  void packed_pointers() {
+    long packed = TextRanges.pack(new TextPointerImpl(12, 34));
+    assertThat(TextRanges.line(packed)).isEqualTo(12);
+    assertThat(TextRanges.lineOffset(packed)).isEqualTo(34);
+    assertThat(TextRanges.pack(1, Integer.MAX_VALUE)).isLessThan(TextRanges.pack(2, 0));
+    assertThat(TextRanges.pack(2, 3)).isLessThan(TextRanges.pack(2, 4));
+    assertThat(TextRanges.pack(2, 3)).isEqualTo(TextRanges.pack(new TextPointerImpl(2, 3)));
+  }
+
   private static TextRange merge(TextRange... ranges) {
     return TextRanges.merge(Arrays.asList(ranges));
   }
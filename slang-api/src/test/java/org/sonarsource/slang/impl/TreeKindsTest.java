@@ -0,0 +1,96 @@
+/*
+ * SonarSource SLang
+ * Copyright (C) 2018-2026 SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.slang.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.sonarsource.slang.api.BinaryExpressionTree;
+import org.sonarsource.slang.api.BinaryExpressionTree.Operator;
+import org.sonarsource.slang.api.BlockTree;
+import org.sonarsource.slang.api.IdentifierTree;
+import org.sonarsource.slang.api.LiteralTree;
+import org.sonarsource.slang.api.StringLiteralTree;
+import org.sonarsource.slang.api.Tree;
+import org.sonarsource.slang.api.TreeMetaData;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TreeKindsTest {
+
+  private static final long IDENTIFIER = TreeKinds.kindsOf(IdentifierTree.class);
+  private static final long LITERAL = TreeKinds.kindsOf(LiteralTree.class);
+  private static final long STRING_LITERAL = TreeKinds.kindsOf(StringLiteralTree.class);
+  private static final long BINARY = TreeKinds.kindsOf(BinaryExpressionTree.class);
+  private static final long BLOCK = TreeKinds.kindsOf(BlockTree.class);
+
+  @Test
+  void kinds_of_classes() {
+    assertThat(TreeKinds.kindsOf(Tree.class)).isZero();
+    assertThat(TreeKinds.kindsOf(String.class)).isZero();
+    assertThat(Long.bitCount(IDENTIFIER)).isEqualTo(1);
+    assertThat(TreeKinds.kindsOf(IdentifierTreeImpl.class)).isEqualTo(IDENTIFIER);
+    assertThat(TreeKinds.kindsOf(StringLiteralTreeImpl.class)).isEqualTo(STRING_LITERAL | LITERAL);
+  }
+
+  @Test
+  void kinds_of_subtrees() {
+    IdentifierTree x = new IdentifierTreeImpl(null, "x");
+    LiteralTree one = new LiteralTreeImpl(null, "1");
+    BinaryExpressionTreeImpl xPlusOne = new BinaryExpressionTreeImpl(null, Operator.PLUS, null, x, one);
+    BlockTreeImpl block = new BlockTreeImpl(null, Arrays.asList(xPlusOne, x));
+
+    assertThat(block.subtreeKinds()).isEqualTo(BLOCK | BINARY | IDENTIFIER | LITERAL);
+    assertThat(xPlusOne.subtreeKinds()).isEqualTo(BINARY | IDENTIFIER | LITERAL);
+    assertThat(TreeKinds.subtreeKinds(one)).isEqualTo(LITERAL);
+  }
+
+  @Test
+  void descendants_of_a_type() {
+    IdentifierTree x = new IdentifierTreeImpl(null, "x");
+    LiteralTree one = new LiteralTreeImpl(null, "1");
+    IdentifierTree y = new IdentifierTreeImpl(null, "y");
+    BinaryExpressionTreeImpl xPlusOne = new BinaryExpressionTreeImpl(null, Operator.PLUS, null, x, one);
+    BlockTreeImpl block = new BlockTreeImpl(null, Arrays.asList(xPlusOne, y, one));
+
+    assertThat(TreeKinds.descendants(block, IdentifierTree.class)).containsExactly(x, y);
+    assertThat(TreeKinds.descendants(block, LiteralTree.class)).containsExactly(one, one);
+    assertThat(TreeKinds.descendants(block, StringLiteralTree.class)).isEmpty();
+    assertThat(TreeKinds.descendants(block, Tree.class)).containsExactlyElementsOf(block.descendants().toList());
+    assertThat(TreeKinds.descendants(x, IdentifierTree.class)).isEmpty();
+  }
+
+  @Test
+  void unknown_trees_contain_all_kinds() {
+    Tree unknown = new Tree() {
+      @Override
+      public List<Tree> children() {
+        return Collections.emptyList();
+      }
+
+      @Override
+      public TreeMetaData metaData() {
+        return null;
+      }
+    };
+    BlockTreeImpl block = new BlockTreeImpl(null, Collections.singletonList(unknown));
+    assertThat(TreeKinds.subtreeKinds(unknown)).isEqualTo(TreeKinds.ALL);
+    assertThat(block.subtreeKinds()).isEqualTo(TreeKinds.ALL);
+  }
+
+}
@@ -116,6 +116,12 @@ class TreeMetaDataProviderTest {
     assertThat(provider.metaData(new TextRangeImpl(1, 1, 1, 20)).tokens()).containsExactly(token1, token2);
     assertThat(provider.metaData(new TextRangeImpl(1, 3, 1, 8)).tokens()).containsExactly(token1);
     assertThat(provider.metaData(new TextRangeImpl(1, 3, 1, 6)).tokens()).containsExactly(token1);
+    assertThat(provider.metaData(new TextRangeImpl(1, 6, 1, 12)).tokens()).containsExactly(token2);
+    assertThat(provider.metaData(new TextRangeImpl(1, 4, 1, 20)).tokens()).containsExactly(token2);
+    assertThat(provider.metaData(new TextRangeImpl(1, 4, 1, 11)).tokens()).isEmpty();
+
+    List<Token> tokens = provider.metaData(new TextRangeImpl(1, 1, 1, 20)).tokens();
+    assertThatThrownBy(() -> tokens.add(token1)).isInstanceOf(UnsupportedOperationException.class);
   }
 
   @Test
@@ -128,6 +134,8 @@ class TreeMetaDataProviderTest {
     TreeMetaData metaData = provider.metaData(new TextRangeImpl(1, 1, 1, 20));
     assertThat(metaData.linesOfCode()).containsExactly(1);
     assertThat(metaData.linesOfCode()).containsExactly(1);
+    assertThatThrownBy(() -> metaData.linesOfCode().add(3)).isInstanceOf(UnsupportedOperationException.class);
+    assertThat(metaData.linesOfCode()).containsExactly(1);
     assertThat(metaData.textRange()).hasToString("TextRange[1, 1, 1, 20]");
     assertThat(provider.metaData(new TextRangeImpl(1, 1, 2, 20)).linesOfCode()).containsExactly(1, 2);
     assertThat(provider.metaData(new TextRangeImpl(1, 1, 3, 20)).linesOfCode()).containsExactly(1, 2);
@@ -219,6 +227,23 @@ class TreeMetaDataProviderTest {
     assertThat(provider.previousToken(range(1, 2, 1, 20), token -> false)).isNotPresent();
   }
 
+  @Test
+  void tokens_keep_their_identity() {
+    Token token1 = new TokenImpl(range(1, 1, 1, 3), "ab", Token.Type.OTHER);
+    Token token2 = new TokenImpl(range(2, 1, 2, 3), "ab", Token.Type.KEYWORD);
+    TreeMetaDataProvider provider = new TreeMetaDataProvider(emptyList(), Arrays.asList(token2, token1));
+    List<Token> allTokens = provider.allTokens();
+    assertThat(allTokens).containsExactly(token1, token2);
+    assertThat(allTokens.get(0)).isSameAs(token1);
+    assertThat(provider.firstToken(range(2, 0, 2, 5))).containsSame(token2);
+
+    Token token3 = new TokenImpl(range(1, 5, 1, 6), "c", Token.Type.OTHER);
+    allTokens.add(token3);
+    allTokens.sort(TreeMetaDataProvider.COMPARATOR);
+    assertThat(allTokens).containsExactly(token1, token3, token2);
+    assertThat(provider.firstToken(range(1, 4, 1, 10))).contains(token3);
+  }
+
   @Test
   void update_token_type() {
     Token token1 = new TokenImpl(range(1, 1, 1, 3), "ab", Token.Type.OTHER);
@@ -247,4 +272,28 @@ class TreeMetaDataProviderTest {
       .hasMessage("token 'xyz' not found in metadata, TextRange[1, 20, 1, 23]");
 
   }
+
+  @Test
+  void frozen_provider_is_immutable() {
+    Comment comment = new CommentImpl("// comment", "comment", range(1, 0, 1, 10), range(1, 2, 1, 10));
+    Token token = new TokenImpl(range(2, 0, 2, 2), "ab", Token.Type.OTHER);
+    TreeMetaDataProvider provider = new TreeMetaDataProvider(singletonList(comment), singletonList(token));
+    assertThat(provider.isFrozen()).isFalse();
+    provider.updateTokenType(token, Token.Type.KEYWORD);
+
+    assertThat(provider.freeze()).isSameAs(provider);
+    assertThat(provider.isFrozen()).isTrue();
+    assertThat(provider.allTokens().get(0).type()).isEqualTo(Token.Type.KEYWORD);
+
+    assertThatThrownBy(() -> provider.updateTokenType(token, Token.Type.OTHER))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Can not update the type of token 'ab', metadata is frozen");
+    List<Token> allTokens = provider.allTokens();
+    assertThatThrownBy(() -> allTokens.add(token)).isInstanceOf(UnsupportedOperationException.class);
+    assertThatThrownBy(() -> allTokens.set(0, token)).isInstanceOf(UnsupportedOperationException.class);
+    List<Comment> allComments = provider.allComments();
+    assertThatThrownBy(() -> allComments.add(comment)).isInstanceOf(UnsupportedOperationException.class);
+    assertThat(provider.metaData(range(1, 0, 2, 2)).tokens()).containsExactly(new TokenImpl(range(2, 0, 2, 2), "ab", Token.Type.KEYWORD));
+  }
+
 }
@@ -0,0 +1,104 @@
+/*
+ * SonarSource SLang
+ * Copyright (C) 2018-2026 SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.slang.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.sonarsource.slang.api.BlockTree;
+import org.sonarsource.slang.api.Token;
+import org.sonarsource.slang.api.Tree;
+import org.sonarsource.slang.impl.BlockTreeImpl;
+import org.sonarsource.slang.impl.IdentifierTreeImpl;
+import org.sonarsource.slang.impl.TextInterner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BinaryTreeTest extends JsonTestHelper {
+
+  @Test
+  void round_trip_and_size() {
+    Tree block = block();
+    byte[] binary = BinaryTree.toBinary(block);
+    String json = JsonTree.toJson(block);
+    assertThat(binary.length).isLessThan(json.getBytes(StandardCharsets.UTF_8).length);
+
+    Tree loaded = BinaryTree.fromBinary(binary);
+    assertThat(loaded).isInstanceOf(BlockTree.class);
+    assertThat(JsonTree.toJson(loaded)).isEqualTo(json);
+    assertThat(loaded.metaData().tokens()).hasSize(5);
+    assertThat(loaded.metaData().commentsInside()).hasSize(1);
+  }
+
+  @Test
+  void shared_text_interner() {
+    byte[] binary = BinaryTree.toBinary(block());
+    TextInterner interner = new TextInterner();
+    Tree first = BinaryTree.fromBinary(binary, interner);
+    Tree second = BinaryTree.fromBinary(binary, interner);
+    assertThat(second.metaData().tokens().get(0).text()).isSameAs(first.metaData().tokens().get(0).text());
+  }
+
+  @Test
+  void tree_types_are_written_by_name() {
+    byte[] binary = BinaryTree.toBinary(block());
+    String latin1 = new String(binary, StandardCharsets.ISO_8859_1);
+    assertThat(latin1).contains("Block", "Identifier");
+
+    byte[] unknownType = binary.clone();
+    unknownType[latin1.indexOf("Block") + 4] = 'x';
+    assertThatThrownBy(() -> BinaryTree.fromBinary(unknownType))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Invalid '@type' value at 'tree/Blocx' member: Blocx");
+  }
+
+  @Test
+  void invalid_data() {
+    byte[] binary = BinaryTree.toBinary(block());
+
+    byte[] otherVersion = binary.clone();
+    otherVersion[0] = 42;
+    assertThatThrownBy(() -> BinaryTree.fromBinary(otherVersion))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Unsupported binary tree format version 42, expected 2");
+
+    byte[] truncated = Arrays.copyOf(binary, binary.length - 1);
+    assertThatThrownBy(() -> BinaryTree.fromBinary(truncated))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Invalid binary tree, unexpected end of data");
+
+    byte[] trailingData = Arrays.copyOf(binary, binary.length + 1);
+    assertThatThrownBy(() -> BinaryTree.fromBinary(trailingData))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Invalid binary tree, unexpected data at " + binary.length);
+  }
+
+  private Tree block() {
+    Token open = otherToken(1, 0, "{");
+    Token x = otherToken(2, 2, "x");
+    Token y = otherToken(3, 2, "y");
+    Token z = otherToken(4, 2, "x");
+    Token close = otherToken(5, 0, "}");
+    comment(2, 4, "// comment", 2, 0);
+    return new BlockTreeImpl(metaData(open, close), Arrays.asList(
+      new IdentifierTreeImpl(metaData(x), x.text()),
+      new IdentifierTreeImpl(metaData(y), y.text()),
+      new IdentifierTreeImpl(metaData(z), z.text())));
+  }
+
+}
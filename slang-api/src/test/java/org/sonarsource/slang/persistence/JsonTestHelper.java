@@ -114,6 +114,11 @@ public class JsonTestHelper {
       .describedAs("Comparing tree de-serialized/serialized into json with " + fileName)
       .isEqualTo(expectedJson);
 
+    Tree binaryLoadedTree = BinaryTree.fromBinary(BinaryTree.toBinary(initialTree));
+    assertThat(indentedJson(JsonTree.toJson(binaryLoadedTree)))
+      .describedAs("Comparing tree serialized/de-serialized into binary with " + fileName)
+      .isEqualTo(expectedJson);
+
     return loadedTree;
   }
 
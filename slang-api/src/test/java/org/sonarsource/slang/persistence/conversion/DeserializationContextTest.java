@@ -23,8 +23,12 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
 import org.junit.jupiter.api.Test;
+import org.sonarsource.slang.api.IdentifierTree;
 import org.sonarsource.slang.api.TextRange;
 import org.sonarsource.slang.api.Token;
+import org.sonarsource.slang.api.Tree;
+import org.sonarsource.slang.impl.IdentifierTreeImpl;
+import org.sonarsource.slang.impl.TextRangeImpl;
 import org.sonarsource.slang.persistence.JsonTestHelper;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -57,6 +61,23 @@ class DeserializationContextTest extends JsonTestHelper {
     assertThat(e).hasMessage("Token not found: 7:13:7:20");
   }
 
+  @Test
+  void deserialized_tree_does_not_modify_its_json() {
+    Token token = otherToken(1, 0, "foo");
+    Tree tree = new IdentifierTreeImpl(metaDataProvider.metaData(token.textRange()), "foo");
+    JsonObject json = Json.object()
+      .add("@type", "Identifier")
+      .add("metaData", "1:0:1:3")
+      .add("child", Json.object().add("@type", "Identifier"))
+      .add("children", Json.array());
+    String jsonText = json.toString();
+
+    JsonObject placeholder = context.addDeserializedTree(json, tree);
+    assertThat(json).hasToString(jsonText);
+    assertThat(placeholder.names()).containsExactly("@type", "metaData");
+    assertThat(context.fieldToObject(Json.object().add("tree", placeholder), "tree", IdentifierTree.class)).isSameAs(tree);
+  }
+
   @Test
   void resolve_metadata() {
     Token token = otherToken(1, 0, "foo");
@@ -166,4 +187,59 @@ class DeserializationContextTest extends JsonTestHelper {
     assertThat(e).hasMessage("Missing non-null value for field 'field2' at 'root' member: {\"field1\":\"1:2:3:4\"}");
   }
 
+  @Test
+  void resolve_tree_reference() {
+    JsonObject identifier = Json.object()
+      .add("@type", "Identifier")
+      .add("metaData", "1:2:1:3")
+      .add("name", "x");
+    JsonObject json = Json.object()
+      .add("block", Json.object()
+        .add("@type", "Block")
+        .add("metaData", "1:0:1:5")
+        .add("statementOrExpressions", Json.array().add(identifier)));
+    Tree block = context.fieldToObject(json, "block", Tree.class);
+    Tree x = block.children().get(0);
+    JsonObject otherJson = Json.object()
+      .add("other", Json.object()
+        .add("@type", "Identifier")
+        .add("metaData", "1:2:1:3")
+        .add("name", "x"));
+    Tree otherX = context.fieldToObject(otherJson, "other", Tree.class);
+
+    assertThat(context.resolveNullableTree(block, "1:2:1:3", IdentifierTree.class)).isSameAs(x);
+    assertThat(context.resolveNullableTree(otherX, "1:2:1:3", IdentifierTree.class)).isSameAs(otherX);
+    assertThat(context.resolveNullableTree(block, "1:0:1:5", Tree.class)).isSameAs(block);
+    assertThat(context.resolveNullableTree(block, "1:0:1:5", IdentifierTree.class)).isNull();
+    assertThat(context.resolveNullableTree(block, "1:3:1:4", Tree.class)).isNull();
+    assertThat(context.resolveNullableTree(block, null, Tree.class)).isNull();
+  }
+
+  @Test
+  void resolve_tree_reference_outside_of_the_parent_range() {
+    JsonObject json = Json.object()
+      .add("block", Json.object()
+        .add("@type", "Block")
+        .add("metaData", "1:0:1:5")
+        .add("statementOrExpressions", Json.array().add(Json.object()
+          .add("@type", "Identifier")
+          .add("metaData", "2:0:2:1")
+          .add("name", "x"))));
+    Tree block = context.fieldToObject(json, "block", Tree.class);
+
+    assertThat(context.resolveNullableTree(block, "2:0:2:1", IdentifierTree.class)).isSameAs(block.children().get(0));
+  }
+
+  @Test
+  void range_text_is_resolved_without_parsing() {
+    TextRange range = new TextRangeImpl(1, 2, 3, 4);
+    String text = context.rangeText(range);
+    assertThat(text).isEqualTo("1:2:3:4");
+    assertThat(context.fieldToRange(Json.object().add("range", text), "range")).isSameAs(range);
+
+    // the same text from another source, like a json document, is parsed
+    TextRange parsed = context.fieldToRange(Json.object().add("range", new String(text)), "range");
+    assertThat(parsed).isNotSameAs(range).isEqualTo(range);
+  }
+
 }
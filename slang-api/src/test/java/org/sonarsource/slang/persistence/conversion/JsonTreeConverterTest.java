@@ -88,7 +88,7 @@ class JsonTreeConverterTest extends JsonTestHelper {
 
     assertThat(methodNames(TreeMetaDataProvider.class))
       .containsExactlyInAnyOrder("allComments", "previousToken", "updateTokenType", "firstToken",
-        "allTokens", "indexOfFirstToken", "keyword");
+        "allTokens", "indexOfFirstToken", "keyword", "freeze", "isFrozen");
   }
 
   @Test
@@ -61,6 +61,34 @@ class RangeConverterTest extends JsonTestHelper {
     assertThat(e).hasMessage("Invalid TextRange '12345'");
   }
 
+  @Test
+  void format_into_buffer() {
+    StringBuilder buffer = new StringBuilder("range=");
+    assertThat(RangeConverter.format(new TextRangeImpl(3, 7, 3, 12), buffer)).isSameAs(buffer);
+    assertThat(buffer).hasToString("range=3:7::12");
+  }
+
+  @Test
+  void parse_window() {
+    assertThat(RangeConverter.parse("\"3:7::12\"", 1, 8)).isEqualTo(new TextRangeImpl(3, 7, 3, 12));
+    assertThat(RangeConverter.parse("x1:0:20:5".toCharArray(), 1, 9)).isEqualTo(new TextRangeImpl(1, 0, 20, 5));
+  }
+
+  @Test
+  void parse_invalid_numbers() {
+    assertThat(assertThrows(IllegalArgumentException.class, () -> RangeConverter.parse("1:2:3")))
+      .hasMessage("Invalid TextRange '1:2:3'");
+    assertThat(assertThrows(IllegalArgumentException.class, () -> RangeConverter.parse("1:a:3:4")))
+      .hasMessage("Invalid TextRange '1:a:3:4'");
+    assertThat(assertThrows(IllegalArgumentException.class, () -> RangeConverter.parse("1:2:3:4:5")))
+      .hasMessage("Invalid TextRange '1:2:3:4:5'");
+    assertThat(assertThrows(IllegalArgumentException.class, () -> RangeConverter.parse("1:2::99999999999")))
+      .hasMessage("Invalid TextRange '1:2::99999999999'");
+    char[] chars = "[1::3:4]".toCharArray();
+    assertThat(assertThrows(IllegalArgumentException.class, () -> RangeConverter.parse(chars, 1, 7)))
+      .hasMessage("Invalid TextRange '1::3:4'");
+  }
+
   @Test
   void token_reference() {
     Token token = otherToken(3, 7, "foo");
@@ -0,0 +1,74 @@
+/*
+ * SonarSource SLang
+ * Copyright (C) 2018-2026 SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.slang.persistence.conversion;
+
+import org.junit.jupiter.api.Test;
+import org.sonarsource.slang.api.LiteralTree;
+import org.sonarsource.slang.api.ReturnTree;
+import org.sonarsource.slang.api.Tree;
+import org.sonarsource.slang.impl.TextInterner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingTreeDeserializerTest {
+
+  private static final String TREE_METADATA = "\"treeMetaData\": {" +
+    "\"comments\": [{\"text\": \"// c\", \"contentText\": \" c\", \"range\": \"2:0:2:4\", \"contentRange\": \"2:2:2:4\"}]," +
+    "\"tokens\": [" +
+    "{\"textRange\": \"1:0:1:6\", \"text\": \"return\", \"type\": \"KEYWORD\"}," +
+    "{\"textRange\": \"1:7:1:11\", \"text\": \"true\"}]}";
+
+  private static final String RETURN_TREE = "\"tree\": {\"@type\": \"Return\", \"metaData\": \"1:0:1:11\"," +
+    " \"body\": {\"@type\": \"Literal\", \"metaData\": \"1:7:1:11\", \"value\": \"true\"}, \"keyword\": \"1:0:1:6\"}";
+
+  @Test
+  void metadata_before_tree() {
+    assertReturnTree(StreamingTreeDeserializer.fromJson("{" + TREE_METADATA + ", " + RETURN_TREE + "}", new TextInterner()));
+  }
+
+  @Test
+  void metadata_after_tree() {
+    assertReturnTree(StreamingTreeDeserializer.fromJson("{" + RETURN_TREE + ", " + TREE_METADATA + "}", new TextInterner()));
+  }
+
+  @Test
+  void type_after_children() {
+    String tree = "\"tree\": {\"metaData\": \"1:0:1:11\"," +
+      " \"body\": {\"metaData\": \"1:7:1:11\", \"value\": \"true\", \"@type\": \"Literal\"}, \"keyword\": \"1:0:1:6\", \"@type\": \"Return\"}";
+    assertReturnTree(StreamingTreeDeserializer.fromJson("{" + TREE_METADATA + ", " + tree + "}", new TextInterner()));
+  }
+
+  @Test
+  void shared_text_interner() {
+    TextInterner interner = new TextInterner();
+    String json = "{" + TREE_METADATA + ", " + RETURN_TREE + "}";
+    ReturnTree first = (ReturnTree) StreamingTreeDeserializer.fromJson(json, interner);
+    ReturnTree second = (ReturnTree) StreamingTreeDeserializer.fromJson(json, interner);
+    assertThat(second.keyword().text()).isSameAs(first.keyword().text());
+  }
+
+  private static void assertReturnTree(Tree tree) {
+    assertThat(tree).isInstanceOf(ReturnTree.class);
+    ReturnTree returnTree = (ReturnTree) tree;
+    assertThat(returnTree.keyword().text()).isEqualTo("return");
+    assertThat(returnTree.body()).isInstanceOf(LiteralTree.class);
+    assertThat(((LiteralTree) returnTree.body()).value()).isEqualTo("true");
+    assertThat(returnTree.metaData().tokens()).hasSize(2);
+    assertThat(returnTree.metaData().commentsInside()).isEmpty();
+  }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * SonarSource SLang
+ * Copyright (C) 2018-2026 SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.slang.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LineSetTest {
+
+  @Test
+  void add_and_contains() {
+    LineSet lines = new LineSet();
+    assertThat(lines).isEmpty();
+    assertThat(lines.add(3)).isTrue();
+    assertThat(lines.add(3)).isFalse();
+    assertThat(lines.add(Integer.valueOf(1))).isTrue();
+    lines.addRange(5, 7);
+    lines.addRange(9, 8);
+    assertThat(lines).hasSize(5).containsExactly(1, 3, 5, 6, 7);
+    assertThat(lines.contains(6)).isTrue();
+    assertThat(lines.contains(8)).isFalse();
+    assertThat(lines.contains(-1)).isFalse();
+    assertThat(lines.contains("1")).isFalse();
+  }
+
+  @Test
+  void negative_lines() {
+    LineSet lines = new LineSet();
+    assertThatThrownBy(() -> lines.add(-1))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Line numbers can not be negative: -1");
+    assertThatThrownBy(() -> lines.addRange(-2, 3))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Line numbers can not be negative: -2");
+    lines.addRange(-1, -2);
+    assertThat(lines).isEmpty();
+    assertThat(lines.contains(-1)).isFalse();
+  }
+
+  @Test
+  void add_all() {
+    LineSet lines = new LineSet();
+    lines.add(2);
+    LineSet other = new LineSet();
+    other.addRange(1, 2);
+    assertThat(lines.addAll(other)).isTrue();
+    assertThat(lines.addAll(other)).isFalse();
+    assertThat(lines.addAll(Set.of(4))).isTrue();
+    assertThat(lines).containsExactly(1, 2, 4);
+  }
+
+  @Test
+  void unmodifiable_view() {
+    LineSet lines = new LineSet();
+    lines.add(2);
+    LineSet view = lines.unmodifiableView();
+    lines.add(4);
+    assertThat(view).containsExactly(2, 4);
+    assertThat(view.unmodifiableView()).isSameAs(view);
+    assertThatThrownBy(() -> view.add(3)).isInstanceOf(UnsupportedOperationException.class);
+    assertThatThrownBy(() -> view.add(Integer.valueOf(3))).isInstanceOf(UnsupportedOperationException.class);
+    assertThatThrownBy(() -> view.addRange(5, 6)).isInstanceOf(UnsupportedOperationException.class);
+    assertThatThrownBy(() -> view.addAll(lines)).isInstanceOf(UnsupportedOperationException.class);
+    assertThatThrownBy(() -> view.remove(2)).isInstanceOf(UnsupportedOperationException.class);
+
+    LineSet other = new LineSet();
+    assertThat(other.addAll(view)).isTrue();
+    assertThat(other).containsExactly(2, 4);
+  }
+
+  @Test
+  void for_each_line() {
+    LineSet lines = new LineSet();
+    lines.add(10);
+    lines.add(2);
+    List<Integer> visited = new ArrayList<>();
+    lines.forEachLine(visited::add);
+    assertThat(visited).containsExactly(2, 10);
+    assertThat(lines).isEqualTo(Set.of(2, 10));
+  }
+
+}
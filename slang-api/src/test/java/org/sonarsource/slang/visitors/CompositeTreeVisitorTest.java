@@ -0,0 +1,163 @@
+/*
+ * SonarSource SLang
+ * Copyright (C) 2018-2026 SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.slang.visitors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.sonarsource.slang.api.BinaryExpressionTree;
+import org.sonarsource.slang.api.BinaryExpressionTree.Operator;
+import org.sonarsource.slang.api.IdentifierTree;
+import org.sonarsource.slang.api.LiteralTree;
+import org.sonarsource.slang.api.Tree;
+import org.sonarsource.slang.impl.BinaryExpressionTreeImpl;
+import org.sonarsource.slang.impl.IdentifierTreeImpl;
+import org.sonarsource.slang.impl.LiteralTreeImpl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompositeTreeVisitorTest {
+
+  private IdentifierTree var1 = new IdentifierTreeImpl(null, "var1");
+  private LiteralTree number1 = new LiteralTreeImpl(null, "1");
+  private BinaryExpressionTree binary = new BinaryExpressionTreeImpl(null, Operator.PLUS, null, var1, number1);
+
+  private List<String> events = new ArrayList<>();
+  private List<String> failures = new ArrayList<>();
+
+  @Test
+  void visitors_share_a_single_traversal() {
+    CompositeTreeVisitor<TreeContext> composite = new CompositeTreeVisitor<>(
+      Arrays.asList(new RecordingVisitor("a"), new RecordingVisitor("b")),
+      (ctx, e) -> failures.add(e.getMessage()));
+    composite.scan(new TreeContext(), binary);
+
+    assertThat(events).containsExactly(
+      "a:before", "b:before",
+      "a:" + binary.getClass().getSimpleName(), "b:" + binary.getClass().getSimpleName(),
+      "a:var1", "b:var1",
+      "a:1", "b:1",
+      "a:after", "b:after");
+    assertThat(failures).isEmpty();
+  }
+
+  @Test
+  void ancestors_are_shared() {
+    List<List<Tree>> ancestors = new ArrayList<>();
+    TreeVisitor<TreeContext> visitor = new TreeVisitor<>();
+    visitor.register(LiteralTree.class, (ctx, tree) -> ancestors.add(new ArrayList<>(ctx.ancestors())));
+    new CompositeTreeVisitor<>(Arrays.asList(new TreeVisitor<>(), visitor), (ctx, e) -> failures.add(e.getMessage()))
+      .scan(new TreeContext(), binary);
+    assertThat(ancestors).containsExactly(List.of(binary));
+  }
+
+  @Test
+  void subtrees_are_visited_when_any_visitor_consumes_their_kinds() {
+    List<Tree> visited = new ArrayList<>();
+    TreeVisitor<TreeContext> literals = new TreeVisitor<>();
+    literals.register(LiteralTree.class, (ctx, tree) -> visited.add(tree));
+    TreeVisitor<TreeContext> identifiers = new TreeVisitor<>();
+    identifiers.register(IdentifierTree.class, (ctx, tree) -> visited.add(tree));
+    BinaryExpressionTree sum = new BinaryExpressionTreeImpl(null, Operator.PLUS, null, binary, number1);
+    new CompositeTreeVisitor<>(Arrays.asList(literals, new TreeVisitor<>()), (ctx, e) -> failures.add(e.getMessage()))
+      .scan(new TreeContext(), sum);
+    assertThat(visited).containsExactly(number1, number1);
+
+    visited.clear();
+    new CompositeTreeVisitor<>(Arrays.asList(literals, identifiers), (ctx, e) -> failures.add(e.getMessage()))
+      .scan(new TreeContext(), sum);
+    assertThat(visited).containsExactly(var1, number1, number1);
+  }
+
+  @Test
+  void failing_visitor_does_not_stop_the_others() {
+    TreeVisitor<TreeContext> failing = new RecordingVisitor("failing");
+    failing.register(IdentifierTree.class, (ctx, tree) -> {
+      throw new IllegalStateException("BOUM");
+    });
+    CompositeTreeVisitor<TreeContext> composite = new CompositeTreeVisitor<>(
+      Arrays.asList(failing, new RecordingVisitor("ok")),
+      (ctx, e) -> failures.add(e.getMessage()));
+    composite.scan(new TreeContext(), binary);
+
+    assertThat(failures).containsExactly("BOUM");
+    assertThat(events).containsExactly(
+      "failing:before", "ok:before",
+      "failing:" + binary.getClass().getSimpleName(), "ok:" + binary.getClass().getSimpleName(),
+      "failing:var1", "failing:afterFailure", "ok:var1",
+      "ok:1",
+      "ok:after");
+
+    // a failure only disables the visitor for the tree being scanned
+    events.clear();
+    failures.clear();
+    composite.scan(new TreeContext(), number1);
+    assertThat(events).containsExactly("failing:before", "ok:before", "failing:1", "ok:1", "failing:after", "ok:after");
+    assertThat(failures).isEmpty();
+  }
+
+  @Test
+  void durations_are_recorded_per_visitor() {
+    RecordingVisitor a = new RecordingVisitor("a");
+    RecordingVisitor b = new RecordingVisitor("b");
+    Map<TreeVisitor<TreeContext>, Long> durations = new IdentityHashMap<>();
+    CompositeTreeVisitor<TreeContext> composite = new CompositeTreeVisitor<>(Arrays.asList(a, b),
+      (ctx, e) -> failures.add(e.getMessage()), durations::put);
+    composite.scan(new TreeContext(), binary);
+
+    assertThat(durations).containsOnlyKeys(a, b);
+    assertThat(durations.values()).allMatch(duration -> duration >= 0);
+  }
+
+  private class RecordingVisitor extends TreeVisitor<TreeContext> {
+
+    private final String name;
+
+    RecordingVisitor(String name) {
+      this.name = name;
+      register(Tree.class, (ctx, tree) -> events.add(name + ":" + label(tree)));
+    }
+
+    private String label(Tree tree) {
+      if (tree instanceof IdentifierTree identifier) {
+        return identifier.name();
+      } else if (tree instanceof LiteralTree literal) {
+        return literal.value();
+      }
+      return tree.getClass().getSimpleName();
+    }
+
+    @Override
+    protected void before(TreeContext ctx, Tree root) {
+      events.add(name + ":before");
+    }
+
+    @Override
+    protected void after(TreeContext ctx, Tree root) {
+      events.add(name + ":after");
+    }
+
+    @Override
+    protected void afterFailure(TreeContext ctx, Tree root) {
+      events.add(name + ":afterFailure");
+    }
+  }
+
+}
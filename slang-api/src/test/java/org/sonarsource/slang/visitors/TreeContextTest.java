@@ -0,0 +1,81 @@
+/*
+ * SonarSource SLang
+ * Copyright (C) 2018-2026 SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.slang.visitors;
+
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import org.sonarsource.slang.api.BlockTree;
+import org.sonarsource.slang.api.ClassDeclarationTree;
+import org.sonarsource.slang.api.FunctionDeclarationTree;
+import org.sonarsource.slang.api.IdentifierTree;
+import org.sonarsource.slang.api.LoopTree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonarsource.slang.utils.TreeCreationUtils.block;
+import static org.sonarsource.slang.utils.TreeCreationUtils.identifier;
+import static org.sonarsource.slang.utils.TreeCreationUtils.simpleFunction;
+
+class TreeContextTest {
+
+  @Test
+  void innermost_ancestor() {
+    IdentifierTree x = identifier("x");
+    BlockTree innerBody = block(Collections.singletonList(x));
+    FunctionDeclarationTree inner = simpleFunction(identifier("inner"), innerBody);
+    BlockTree outerBody = block(Collections.singletonList(inner));
+    FunctionDeclarationTree outer = simpleFunction(identifier("outer"), outerBody);
+
+    TreeContext ctx = new TreeContext();
+    ctx.enter(outer);
+    assertThat(ctx.innermostAncestor(FunctionDeclarationTree.class)).isNull();
+    assertThat(ctx.hasAncestor(FunctionDeclarationTree.class)).isFalse();
+
+    ctx.enter(outerBody);
+    assertThat(ctx.innermostAncestor(FunctionDeclarationTree.class)).isSameAs(outer);
+
+    ctx.enter(inner);
+    assertThat(ctx.innermostAncestor(FunctionDeclarationTree.class)).isSameAs(outer);
+
+    ctx.enter(innerBody);
+    ctx.enter(x);
+    assertThat(ctx.innermostAncestor(FunctionDeclarationTree.class)).isSameAs(inner);
+    assertThat(ctx.innermostAncestor(BlockTree.class)).isSameAs(innerBody);
+    assertThat(ctx.hasAncestor(ClassDeclarationTree.class)).isFalse();
+    assertThat(ctx.hasAncestor(LoopTree.class)).isFalse();
+
+    ctx.leave(x);
+    ctx.leave(innerBody);
+    ctx.leave(inner);
+    assertThat(ctx.innermostAncestor(FunctionDeclarationTree.class)).isSameAs(outer);
+    ctx.leave(outerBody);
+    assertThat(ctx.innermostAncestor(FunctionDeclarationTree.class)).isNull();
+  }
+
+  @Test
+  void ancestors_are_reset_before_scan() {
+    FunctionDeclarationTree function = simpleFunction(identifier("f"), block(Collections.emptyList()));
+    IdentifierTree x = identifier("x");
+    TreeContext ctx = new TreeContext();
+    ctx.enter(function);
+    ctx.enter(x);
+    assertThat(ctx.hasAncestor(FunctionDeclarationTree.class)).isTrue();
+
+    ctx.before(x);
+    assertThat(ctx.hasAncestor(FunctionDeclarationTree.class)).isFalse();
+  }
+
+}
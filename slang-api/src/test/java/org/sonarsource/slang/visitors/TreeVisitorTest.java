@@ -36,6 +36,7 @@ import org.sonarsource.slang.impl.NativeTreeImpl;
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class TreeVisitorTest {
 
@@ -76,4 +77,99 @@ class TreeVisitorTest {
     assertThat(ancestors.get(var1)).containsExactly(binary);
     assertThat(ancestors.get(number1)).containsExactly(binary);
   }
+
+  @Test
+  void consumers_are_called_in_registration_order() {
+    List<String> visited = new ArrayList<>();
+    visitor.register(Tree.class, (ctx, tree) -> visited.add("tree"));
+    visitor.register(IdentifierTree.class, (ctx, tree) -> visited.add("identifier " + tree.name()));
+    visitor.register(BinaryExpressionTree.class, (ctx, tree) -> visited.add("binary"));
+    visitor.register(Tree.class, (ctx, tree) -> visited.add("tree again"));
+    visitor.scan(new TreeContext(), binary);
+    assertThat(visited).containsExactly(
+      "tree", "binary", "tree again",
+      "tree", "identifier var1", "tree again",
+      "tree", "tree again");
+  }
+
+  @Test
+  void after_failure() {
+    List<String> events = new ArrayList<>();
+    TreeVisitor<TreeContext> failing = new TreeVisitor<>() {
+      @Override
+      protected void after(TreeContext ctx, Tree root) {
+        events.add("after");
+      }
+
+      @Override
+      protected void afterFailure(TreeContext ctx, Tree root) {
+        events.add("afterFailure");
+      }
+    };
+    failing.register(LiteralTree.class, (ctx, tree) -> {
+      throw new IllegalStateException("BOUM");
+    });
+    TreeContext ctx = new TreeContext();
+    assertThatThrownBy(() -> failing.scan(ctx, binary))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("BOUM");
+    assertThat(events).containsExactly("afterFailure");
+  }
+
+  @Test
+  void consumers_registered_after_a_scan() {
+    List<String> visited = new ArrayList<>();
+    visitor.register(IdentifierTree.class, (ctx, tree) -> visited.add("identifier"));
+    visitor.scan(new TreeContext(), binary);
+    assertThat(visited).containsExactly("identifier");
+
+    visited.clear();
+    visitor.register(LiteralTree.class, (ctx, tree) -> visited.add("literal"));
+    visitor.scan(new TreeContext(), binary);
+    assertThat(visited).containsExactly("identifier", "literal");
+  }
+
+  @Test
+  void deeply_nested_tree() {
+    int depth = 100_000;
+    Tree tree = number1;
+    for (int i = 0; i < depth; i++) {
+      tree = new BinaryExpressionTreeImpl(null, Operator.PLUS, null, tree, var1);
+    }
+    List<Integer> maxAncestors = new ArrayList<>(List.of(0));
+    List<Tree> visited = new ArrayList<>();
+    visitor.register(Tree.class, (ctx, node) -> {
+      visited.add(node);
+      maxAncestors.set(0, Math.max(maxAncestors.get(0), ctx.ancestors().size()));
+    });
+    visitor.scan(new TreeContext(), tree);
+    assertThat(visited).hasSize(2 * depth + 1).startsWith(tree);
+    assertThat(maxAncestors.get(0)).isEqualTo(depth);
+  }
+
+  @Test
+  void subtrees_without_consumed_kinds_are_skipped() {
+    List<Tree> entered = new ArrayList<>();
+    TreeContext ctx = new TreeContext() {
+      @Override
+      public void enter(Tree node) {
+        entered.add(node);
+        super.enter(node);
+      }
+    };
+    List<Tree> visited = new ArrayList<>();
+    visitor.register(LiteralTree.class, (c, tree) -> visited.add(tree));
+    visitor.scan(ctx, nativeNode);
+    assertThat(visited).containsExactly(number1);
+    assertThat(entered).containsExactly(nativeNode, binary, number1);
+  }
+
+  @Test
+  void all_subtrees_are_visited_by_consumers_of_unknown_kinds() {
+    List<Tree> visited = new ArrayList<>();
+    visitor.register(LiteralTree.class, (c, tree) -> visited.add(tree));
+    visitor.register(Tree.class, (c, tree) -> visited.add(tree));
+    visitor.scan(new TreeContext(), nativeNode);
+    assertThat(visited).containsExactly(nativeNode, binary, var1, number1, number1, binminus, var1, var1);
+  }
 }
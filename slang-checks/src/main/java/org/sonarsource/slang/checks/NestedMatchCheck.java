@@ -28,11 +28,10 @@ public class NestedMatchCheck implements SlangCheck {
 
   @Override
   public void initialize(InitContext init) {
-    init.register(MatchTree.class, (ctx, matchTree) -> ctx.ancestors().stream()
-      .filter(MatchTree.class::isInstance)
-      .findFirst()
-      .ifPresent(parentMatch ->
-        ctx.reportIssue(matchTree.keyword(), MessageFormat.format(MESSAGE, matchTree.keyword().text()))
-      ));
+    init.register(MatchTree.class, (ctx, matchTree) -> {
+      if (ctx.hasAncestor(MatchTree.class)) {
+        ctx.reportIssue(matchTree.keyword(), MessageFormat.format(MESSAGE, matchTree.keyword().text()));
+      }
+    });
   }
 }
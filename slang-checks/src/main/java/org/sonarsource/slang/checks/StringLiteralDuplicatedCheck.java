@@ -29,6 +29,7 @@ import org.sonarsource.slang.checks.api.CheckContext;
 import org.sonarsource.slang.checks.api.InitContext;
 import org.sonarsource.slang.checks.api.SecondaryLocation;
 import org.sonarsource.slang.checks.api.SlangCheck;
+import org.sonarsource.slang.impl.TreeKinds;
 
 @Rule(key = "S1192")
 public class StringLiteralDuplicatedCheck implements SlangCheck {
@@ -47,9 +48,7 @@ public class StringLiteralDuplicatedCheck implements SlangCheck {
   public void initialize(InitContext init) {
     init.register(TopLevelTree.class, (ctx, tree) -> {
       Map<String, List<StringLiteralTree>> occurrences = new HashMap<>();
-      tree.descendants()
-        .filter(StringLiteralTree.class::isInstance)
-        .map(StringLiteralTree.class::cast)
+      TreeKinds.descendants(tree, StringLiteralTree.class)
         .filter(literal -> literal.content().length() > MINIMAL_LITERAL_LENGTH && !NO_SEPARATOR_REGEXP.matcher(literal.content()).matches())
         .forEach(literal -> occurrences.computeIfAbsent(literal.content(), key -> new LinkedList<>()).add(literal));
       check(ctx, occurrences, threshold);
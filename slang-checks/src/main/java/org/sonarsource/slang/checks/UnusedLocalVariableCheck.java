@@ -22,6 +22,7 @@ import org.sonarsource.slang.api.Tree;
 import org.sonarsource.slang.api.VariableDeclarationTree;
 import org.sonarsource.slang.checks.api.InitContext;
 import org.sonarsource.slang.checks.api.SlangCheck;
+import org.sonarsource.slang.impl.TreeKinds;
 import org.sonarsource.slang.utils.SyntacticEquivalence;
 import org.sonar.check.Rule;
 
@@ -35,7 +36,7 @@ public class UnusedLocalVariableCheck implements SlangCheck {
   public void initialize(InitContext init) {
     init.register(FunctionDeclarationTree.class, (ctx, functionDeclarationTree) -> {
 
-      if(ctx.ancestors().stream().anyMatch(FunctionDeclarationTree.class::isInstance)) {
+      if (ctx.hasAncestor(FunctionDeclarationTree.class)) {
         return;
       }
 
@@ -49,9 +50,7 @@ public class UnusedLocalVariableCheck implements SlangCheck {
   }
 
   protected Set<IdentifierTree> getVariableIdentifierTrees(FunctionDeclarationTree functionDeclarationTree) {
-    return functionDeclarationTree.descendants()
-      .filter(VariableDeclarationTree.class::isInstance)
-      .map(VariableDeclarationTree.class::cast)
+    return TreeKinds.descendants(functionDeclarationTree, VariableDeclarationTree.class)
       .map(VariableDeclarationTree::identifier)
       .collect(Collectors.toSet());
   }
@@ -44,7 +44,7 @@ public class UnusedPrivateMethodCheck implements SlangCheck {
 
   protected void processClassDeclaration(CheckContext context, ClassDeclarationTree classDeclarationTree) {
     // only verify the outermost class in the file, to avoid raising the same issue multiple times
-    if (context.ancestors().stream().noneMatch(ClassDeclarationTree.class::isInstance)) {
+    if (!context.hasAncestor(ClassDeclarationTree.class)) {
       reportUnusedPrivateMethods(context, classDeclarationTree);
     }
   }
@@ -49,7 +49,7 @@ public class VariableAndParameterNameCheck implements SlangCheck {
     Pattern pattern = Pattern.compile(format);
 
     init.register(VariableDeclarationTree.class, (ctx, tree) -> {
-      if (ctx.ancestors().stream().anyMatch(FunctionDeclarationTree.class::isInstance)) {
+      if (ctx.hasAncestor(FunctionDeclarationTree.class)) {
         check(pattern, ctx, tree.identifier(), "local variable");
       }
     });
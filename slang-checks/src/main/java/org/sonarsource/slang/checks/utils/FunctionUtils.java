@@ -28,6 +28,7 @@ import org.sonarsource.slang.api.MemberSelectTree;
 import org.sonarsource.slang.api.ModifierTree;
 import org.sonarsource.slang.api.StringLiteralTree;
 import org.sonarsource.slang.api.Tree;
+import org.sonarsource.slang.impl.TreeKinds;
 
 import static org.sonarsource.slang.api.ModifierTree.Kind.OVERRIDE;
 import static org.sonarsource.slang.api.ModifierTree.Kind.PRIVATE;
@@ -60,9 +61,7 @@ public class FunctionUtils {
 
   public static Set<String> getStringsTokens(FunctionDeclarationTree functionDeclarationTree, String delimitersRegex) {
     Set<String> stringLiteralTokens = new HashSet<>();
-    functionDeclarationTree.descendants()
-      .filter(StringLiteralTree.class::isInstance)
-      .map(StringLiteralTree.class::cast)
+    TreeKinds.descendants(functionDeclarationTree, StringLiteralTree.class)
       .map(StringLiteralTree::content)
       .forEach(literal -> stringLiteralTokens.addAll(Arrays.asList(literal.split(delimitersRegex))));
     return stringLiteralTokens;
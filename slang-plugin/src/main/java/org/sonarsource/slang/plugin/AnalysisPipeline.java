@@ -0,0 +1,236 @@
+/*
+ * SonarSource SLang
+ * Copyright (C) 2018-2026 SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.slang.plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonarsource.analyzer.commons.ProgressReport;
+import org.sonarsource.slang.api.ASTConverter;
+import org.sonarsource.slang.api.ParseException;
+import org.sonarsource.slang.api.Tree;
+import org.sonarsource.slang.impl.TextInterner;
+import org.sonarsource.slang.plugin.SlangSensor.SourceFile;
+import org.sonarsource.slang.visitors.TreeVisitor;
+
+/**
+ * Analyzes files in three stages connected by bounded queues, so that reading files overlaps with parsing and
+ * visiting them, while the number of files held in memory stays capped:
+ * <ul>
+ *   <li>one reader thread reuses previous results of unchanged files and reads the content of the others,</li>
+ *   <li>{@code parallelism} parser threads convert the content into trees,</li>
+ *   <li>{@code parallelism} visitor threads run the visitors on the trees.</li>
+ * </ul>
+ * Each thread lazily creates its own converter and its own visitors.
+ */
+class AnalysisPipeline {
+
+  private static final int QUEUE_CAPACITY_PER_THREAD = 2;
+
+  private static final long TERMINATION_POLL_SECONDS = 1;
+
+  private static final Item END_OF_STAGE = new Item(null, null);
+
+  private final SensorContext sensorContext;
+  private final ProgressReport progressReport;
+  private final DurationStatistics statistics;
+  private final int parallelism;
+  @Nullable
+  private final String treeCacheVersion;
+  private final TextInterner textInterner;
+  private final Function<InputFile, InputFileContext> contextFactory;
+  private final BiConsumer<InputFileContext, ParseException> parseErrorHandler;
+
+  private final List<ASTConverter> converters = Collections.synchronizedList(new ArrayList<>());
+  private final ThreadLocal<ASTConverter> threadConverter;
+  private final ThreadLocal<List<TreeVisitor<InputFileContext>>> threadVisitors;
+
+  private final BlockingQueue<Item> readFiles;
+  private final BlockingQueue<Item> parsedFiles;
+  private final AtomicInteger runningParsers;
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+  private volatile boolean cancelled = false;
+
+  AnalysisPipeline(SensorContext sensorContext,
+    ProgressReport progressReport,
+    DurationStatistics statistics,
+    int parallelism,
+    @Nullable String treeCacheVersion,
+    TextInterner textInterner,
+    Supplier<ASTConverter> converterFactory,
+    Supplier<List<TreeVisitor<InputFileContext>>> visitorsFactory,
+    Function<InputFile, InputFileContext> contextFactory,
+    BiConsumer<InputFileContext, ParseException> parseErrorHandler) {
+    this.sensorContext = sensorContext;
+    this.progressReport = progressReport;
+    this.statistics = statistics;
+    this.parallelism = parallelism;
+    this.treeCacheVersion = treeCacheVersion;
+    this.textInterner = textInterner;
+    this.contextFactory = contextFactory;
+    this.parseErrorHandler = parseErrorHandler;
+    this.threadConverter = ThreadLocal.withInitial(() -> {
+      ASTConverter converter = converterFactory.get();
+      converters.add(converter);
+      return converter;
+    });
+    this.threadVisitors = ThreadLocal.withInitial(visitorsFactory);
+    this.readFiles = new ArrayBlockingQueue<>(QUEUE_CAPACITY_PER_THREAD * parallelism);
+    this.parsedFiles = new ArrayBlockingQueue<>(QUEUE_CAPACITY_PER_THREAD * parallelism);
+    this.runningParsers = new AtomicInteger(parallelism);
+  }
+
+  /**
+   * @return false if the analysis has been cancelled, true otherwise
+   */
+  boolean run(Iterable<InputFile> inputFiles) {
+    ExecutorService executor = Executors.newFixedThreadPool(1 + 2 * parallelism);
+    try {
+      executor.execute(() -> runStage(executor, () -> read(inputFiles)));
+      for (int i = 0; i < parallelism; i++) {
+        executor.execute(() -> runStage(executor, this::parse));
+        executor.execute(() -> runStage(executor, this::visit));
+      }
+      executor.shutdown();
+      while (!executor.awaitTermination(TERMINATION_POLL_SECONDS, TimeUnit.SECONDS)) {
+        if (sensorContext.isCancelled()) {
+          // Stages may be blocked on a queue or in a visitor which never returns: they are interrupted and not awaited
+          cancelled = true;
+          executor.shutdownNow();
+          break;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while analyzing files", e);
+    } finally {
+      executor.shutdownNow();
+      converters.forEach(ASTConverter::terminate);
+    }
+    Throwable stageFailure = failure.get();
+    if (stageFailure instanceof RuntimeException runtimeException) {
+      throw runtimeException;
+    } else if (stageFailure instanceof Error error) {
+      throw error;
+    }
+    return !cancelled;
+  }
+
+  private void read(Iterable<InputFile> inputFiles) throws InterruptedException {
+    List<TreeVisitor<InputFileContext>> visitors = threadVisitors.get();
+    for (InputFile inputFile : inputFiles) {
+      if (sensorContext.isCancelled()) {
+        cancelled = true;
+        break;
+      }
+      InputFileContext inputFileContext = contextFactory.apply(inputFile);
+      SourceFile sourceFile;
+      try {
+        sourceFile = SlangSensor.readFile(inputFileContext, visitors, treeCacheVersion, textInterner);
+      } catch (ParseException e) {
+        parseErrorHandler.accept(inputFileContext, e);
+        sourceFile = null;
+      }
+      if (sourceFile == null) {
+        nextFile();
+      } else {
+        readFiles.put(new Item(sourceFile, null));
+      }
+    }
+    for (int i = 0; i < parallelism; i++) {
+      readFiles.put(END_OF_STAGE);
+    }
+  }
+
+  private void parse() throws InterruptedException {
+    ASTConverter converter = threadConverter.get();
+    for (Item item = readFiles.take(); item != END_OF_STAGE; item = readFiles.take()) {
+      try {
+        Tree tree = SlangSensor.parseFile(converter, item.sourceFile, statistics);
+        parsedFiles.put(new Item(item.sourceFile, tree));
+      } catch (ParseException e) {
+        parseErrorHandler.accept(item.sourceFile.inputFileContext(), e);
+        nextFile();
+      }
+    }
+    if (runningParsers.decrementAndGet() == 0) {
+      for (int i = 0; i < parallelism; i++) {
+        parsedFiles.put(END_OF_STAGE);
+      }
+    }
+  }
+
+  private void visit() throws InterruptedException {
+    List<TreeVisitor<InputFileContext>> visitors = threadVisitors.get();
+    for (Item item = parsedFiles.take(); item != END_OF_STAGE; item = parsedFiles.take()) {
+      SlangSensor.visitFile(item.sourceFile, item.tree, visitors, statistics);
+      nextFile();
+    }
+  }
+
+  private void nextFile() {
+    synchronized (progressReport) {
+      progressReport.nextFile();
+    }
+  }
+
+  /**
+   * Runs one stage and stops the whole pipeline if it fails, errors included, so that no other stage stays blocked
+   * on a queue waiting for an end of stage which will never come.
+   */
+  private void runStage(ExecutorService executor, Stage stage) {
+    try {
+      stage.run();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Throwable e) {
+      failure.compareAndSet(null, e);
+      executor.shutdownNow();
+    }
+  }
+
+  @FunctionalInterface
+  private interface Stage {
+    void run() throws InterruptedException;
+  }
+
+  private static final class Item {
+
+    private final SourceFile sourceFile;
+    private final Tree tree;
+
+    private Item(@Nullable SourceFile sourceFile, @Nullable Tree tree) {
+      this.sourceFile = sourceFile;
+      this.tree = tree;
+    }
+
+  }
+
+}
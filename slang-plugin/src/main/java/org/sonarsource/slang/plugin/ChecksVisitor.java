@@ -16,14 +16,34 @@
  */
 package org.sonarsource.slang.plugin;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.function.BiConsumer;
 import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.rule.ActiveRule;
+import org.sonar.api.batch.rule.ActiveRules;
 import org.sonar.api.batch.rule.Checks;
 import org.sonar.api.rule.RuleKey;
 import org.sonarsource.slang.api.HasTextRange;
@@ -33,22 +53,285 @@ import org.sonarsource.slang.checks.api.CheckContext;
 import org.sonarsource.slang.checks.api.InitContext;
 import org.sonarsource.slang.checks.api.SecondaryLocation;
 import org.sonarsource.slang.checks.api.SlangCheck;
-import org.sonarsource.slang.visitors.TreeVisitor;
+import org.sonarsource.slang.impl.TextRangeImpl;
 
-public class ChecksVisitor extends TreeVisitor<InputFileContext> {
+/**
+ * Runs the active checks. The issues raised on a file are cached, with a fingerprint of the active rules, of their
+ * parameters and of the version of their implementation, so that they can be reported again for the unchanged file by
+ * the next analysis, without parsing it, as long as these are the same.
+ */
+public class ChecksVisitor extends PullRequestAwareVisitor {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ChecksVisitor.class);
+  private static final String CACHED_RESULTS_NAME = "issues";
 
   private final DurationStatistics statistics;
 
+  private final List<RuleKey> ruleKeys = new ArrayList<>();
+
+  // versions of the jars implementing the checks, unknown when running from classes
+  private final Set<String> checkVersions = new TreeSet<>();
+
+  /**
+   * Issues are saved once the whole tree has been visited, so that the visitors which filter issues
+   * can be run in the same traversal, before this one.
+   */
+  private final List<Issue> pendingIssues = new ArrayList<>();
+
+  // fingerprints of the rules, for main files and for test files
+  private final Map<Boolean, byte[]> rulesFingerprints = new HashMap<>();
+
   public ChecksVisitor(Checks<SlangCheck> checks, DurationStatistics statistics) {
     this.statistics = statistics;
     Collection<SlangCheck> rulesActiveInSonarQube = checks.all();
     for (SlangCheck check : rulesActiveInSonarQube) {
       RuleKey ruleKey = checks.ruleKey(check);
       Objects.requireNonNull(ruleKey);
+      ruleKeys.add(ruleKey);
+      checkVersions.add(String.valueOf(check.getClass().getPackage().getImplementationVersion()));
       check.initialize(new ContextAdapter(ruleKey));
     }
   }
 
+  @Override
+  protected void before(InputFileContext ctx, Tree root) {
+    pendingIssues.clear();
+  }
+
+  @Override
+  protected void after(InputFileContext ctx, Tree root) {
+    cacheIssues(ctx, reportPendingIssues(ctx));
+  }
+
+  /**
+   * The issues raised before the failure of a check are reported, but not cached, as they may be incomplete.
+   */
+  @Override
+  protected void afterFailure(InputFileContext ctx, Tree root) {
+    reportPendingIssues(ctx);
+  }
+
+  private List<Issue> reportPendingIssues(InputFileContext ctx) {
+    List<Issue> reportedIssues = pendingIssues.stream()
+      .filter(issue -> !ctx.isFiltered(issue.ruleKey, issue.textRange))
+      .toList();
+    pendingIssues.clear();
+    reportedIssues.forEach(issue -> issue.report(ctx));
+    return reportedIssues;
+  }
+
+  @Override
+  public boolean reusePreviousResults(InputFileContext ctx) {
+    if (!canReusePreviousResults(ctx)) {
+      return false;
+    }
+    String key = computeCacheKey(ctx);
+    byte[] cached = readPreviousResults(ctx, key, CACHED_RESULTS_NAME);
+    if (cached == null) {
+      return false;
+    }
+    List<Issue> issues;
+    try {
+      issues = deserialize(cached, rulesFingerprint(ctx));
+    } catch (IllegalArgumentException e) {
+      LOG.debug("Failed to load cached issues for input file {}: {}", ctx.inputFile.key(), e.getMessage());
+      return false;
+    }
+    if (!copyPreviousResults(ctx, key, CACHED_RESULTS_NAME)) {
+      return false;
+    }
+    issues.forEach(issue -> issue.report(ctx));
+    LOG.debug("Reported {} cached issues for input file {}.", issues.size(), ctx.inputFile.key());
+    return true;
+  }
+
+  private void cacheIssues(InputFileContext ctx, List<Issue> issues) {
+    writeNextResults(ctx, computeCacheKey(ctx), CACHED_RESULTS_NAME,
+      () -> serialize(rulesFingerprint(ctx), issues));
+  }
+
+  /**
+   * Hash of the keys of the rules run by this visitor, of their parameters, of the versions of the checks and of the
+   * classification of the file as a test file, which changes the issues of some checks: cached issues can only be
+   * reused when it does not change.
+   */
+  private byte[] rulesFingerprint(InputFileContext ctx) {
+    ActiveRules activeRules = ctx.sensorContext.activeRules();
+    return rulesFingerprints.computeIfAbsent(ctx.isTestFile(), isTestFile -> {
+      StringBuilder rules = new StringBuilder();
+      rules.append("test=").append(isTestFile).append('\n');
+      checkVersions.forEach(version -> rules.append("version=").append(version).append('\n'));
+      ruleKeys.stream()
+        .sorted(Comparator.comparing(RuleKey::toString))
+        .forEach(ruleKey -> {
+          rules.append(ruleKey).append('\n');
+          ActiveRule activeRule = activeRules.find(ruleKey);
+          Map<String, String> params = activeRule == null ? Collections.emptyMap() : new TreeMap<>(activeRule.params());
+          params.forEach((name, value) -> rules.append(name).append('=').append(value).append('\n'));
+        });
+      return sha256(rules.toString());
+    });
+  }
+
+  private static byte[] sha256(String text) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+  }
+
+  /**
+   * Computes a unique key for a file that can be used to store its issues in a cache.
+   */
+  // VisibleForTesting
+  static String computeCacheKey(InputFileContext ctx) {
+    return ctx.cacheKey("issues");
+  }
+
+  /**
+   * Transforms a list of issues into a byte array for caching.
+   * Must be reversible by {@link #deserialize(byte[], byte[])}.
+   */
+  // VisibleForTesting
+  static byte[] serialize(byte[] rulesFingerprint, List<Issue> issues) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeShort(rulesFingerprint.length);
+      out.write(rulesFingerprint);
+      out.writeInt(issues.size());
+      for (Issue issue : issues) {
+        out.writeUTF(issue.ruleKey.repository());
+        out.writeUTF(issue.ruleKey.rule());
+        writeNullableRange(out, issue.textRange);
+        writeString(out, issue.message);
+        out.writeInt(issue.secondaryLocations.size());
+        for (SecondaryLocation secondaryLocation : issue.secondaryLocations) {
+          writeRange(out, secondaryLocation.textRange);
+          out.writeBoolean(secondaryLocation.message != null);
+          if (secondaryLocation.message != null) {
+            writeString(out, secondaryLocation.message);
+          }
+        }
+        out.writeBoolean(issue.gap != null);
+        if (issue.gap != null) {
+          out.writeDouble(issue.gap);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Deserialize a byte array, serialized by {@link #serialize(byte[], List)}, into a list of issues.
+   *
+   * @throws IllegalArgumentException - when failing to deserialize (eg: unexpected format), or when the issues have
+   * been raised by other rules or rule parameters
+   */
+  // VisibleForTesting
+  static List<Issue> deserialize(byte[] serialized, byte[] expectedRulesFingerprint) {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(serialized))) {
+      byte[] rulesFingerprint = new byte[in.readUnsignedShort()];
+      in.readFully(rulesFingerprint);
+      if (!Arrays.equals(rulesFingerprint, expectedRulesFingerprint)) {
+        throw new IllegalArgumentException("Cached issues have been raised by different rules or rule parameters");
+      }
+      int issueCount = in.readInt();
+      List<Issue> issues = new ArrayList<>();
+      for (int i = 0; i < issueCount; i++) {
+        RuleKey ruleKey = RuleKey.of(in.readUTF(), in.readUTF());
+        TextRange textRange = readNullableRange(in);
+        String message = readString(in);
+        int secondaryLocationCount = in.readInt();
+        List<SecondaryLocation> secondaryLocations = new ArrayList<>();
+        for (int j = 0; j < secondaryLocationCount; j++) {
+          TextRange secondaryRange = readRange(in);
+          String secondaryMessage = in.readBoolean() ? readString(in) : null;
+          secondaryLocations.add(new SecondaryLocation(secondaryRange, secondaryMessage));
+        }
+        Double gap = in.readBoolean() ? in.readDouble() : null;
+        issues.add(new Issue(ruleKey, textRange, message, secondaryLocations, gap));
+      }
+      if (in.available() > 0) {
+        throw new IllegalArgumentException("Could not deserialize cached issues: unexpected trailing data");
+      }
+      return issues;
+    } catch (IOException | IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Could not deserialize cached issues: %s".formatted(e.getMessage()), e);
+    }
+  }
+
+  private static void writeNullableRange(DataOutputStream out, @Nullable TextRange textRange) throws IOException {
+    out.writeBoolean(textRange != null);
+    if (textRange != null) {
+      writeRange(out, textRange);
+    }
+  }
+
+  private static void writeRange(DataOutputStream out, TextRange textRange) throws IOException {
+    out.writeInt(textRange.start().line());
+    out.writeInt(textRange.start().lineOffset());
+    out.writeInt(textRange.end().line());
+    out.writeInt(textRange.end().lineOffset());
+  }
+
+  @Nullable
+  private static TextRange readNullableRange(DataInputStream in) throws IOException {
+    return in.readBoolean() ? readRange(in) : null;
+  }
+
+  private static TextRange readRange(DataInputStream in) throws IOException {
+    return new TextRangeImpl(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+  }
+
+  /**
+   * Unlike {@link DataOutputStream#writeUTF(String)}, supports texts longer than 65535 bytes.
+   */
+  private static void writeString(DataOutputStream out, String text) throws IOException {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > in.available()) {
+      throw new IllegalArgumentException("Could not deserialize cached issues: invalid text length " + length);
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * An issue raised by a check, not yet saved.
+   */
+  static final class Issue {
+
+    final RuleKey ruleKey;
+    @Nullable
+    final TextRange textRange;
+    final String message;
+    final List<SecondaryLocation> secondaryLocations;
+    @Nullable
+    final Double gap;
+
+    Issue(RuleKey ruleKey, @Nullable TextRange textRange, String message, List<SecondaryLocation> secondaryLocations, @Nullable Double gap) {
+      this.ruleKey = ruleKey;
+      this.textRange = textRange;
+      this.message = message;
+      this.secondaryLocations = secondaryLocations;
+      this.gap = gap;
+    }
+
+    private void report(InputFileContext ctx) {
+      ctx.reportIssue(ruleKey, textRange, message, secondaryLocations, gap);
+    }
+
+  }
+
   public class ContextAdapter implements InitContext, CheckContext {
 
     public final RuleKey ruleKey;
@@ -71,6 +354,16 @@ public class ChecksVisitor extends TreeVisitor<InputFileContext> {
       return currentCtx.ancestors();
     }
 
+    @Override
+    public <T extends Tree> T innermostAncestor(Class<T> kind) {
+      return currentCtx.innermostAncestor(kind);
+    }
+
+    @Override
+    public boolean hasAncestor(Class<? extends Tree> kind) {
+      return currentCtx.hasAncestor(kind);
+    }
+
     @Override
     public String filename() {
       return currentCtx.inputFile.filename();
@@ -126,7 +419,7 @@ public class ChecksVisitor extends TreeVisitor<InputFileContext> {
     }
 
     private void reportIssue(@Nullable TextRange textRange, String message, List<SecondaryLocation> secondaryLocations, @Nullable Double gap) {
-      currentCtx.reportIssue(ruleKey, textRange, message, secondaryLocations, gap);
+      pendingIssues.add(new Issue(ruleKey, textRange, message, secondaryLocations, gap));
     }
 
   }
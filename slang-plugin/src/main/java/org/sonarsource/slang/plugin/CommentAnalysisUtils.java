@@ -16,11 +16,10 @@
  */
 package org.sonarsource.slang.plugin;
 
-import java.util.HashSet;
 import java.util.Locale;
-import java.util.Set;
 import org.sonarsource.slang.api.Comment;
 import org.sonarsource.slang.api.TextRange;
+import org.sonarsource.slang.utils.LineSet;
 
 public class CommentAnalysisUtils {
   public static final String NOSONAR_PREFIX = "NOSONAR";
@@ -38,8 +37,8 @@ public class CommentAnalysisUtils {
     return comment.contentText().trim().toUpperCase(Locale.ENGLISH).startsWith(NOSONAR_PREFIX);
   }
 
-  static Set<Integer> findNonEmptyCommentLines(TextRange range, String content) {
-    Set<Integer> lineNumbers = new HashSet<>();
+  static LineSet findNonEmptyCommentLines(TextRange range, String content) {
+    LineSet lineNumbers = new LineSet();
 
     int startLine = range.start().line();
     if (startLine == range.end().line()) {
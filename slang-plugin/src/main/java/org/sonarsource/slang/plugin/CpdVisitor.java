@@ -16,29 +16,30 @@
  */
 package org.sonarsource.slang.plugin;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.stream.Collectors;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.cache.ReadCache;
 import org.sonar.api.batch.sensor.cpd.NewCpdTokens;
-import org.sonarsource.slang.api.TextRange;
+import org.sonarsource.slang.api.TextPointer;
 import org.sonarsource.slang.api.Token;
 import org.sonarsource.slang.api.TopLevelTree;
 import org.sonarsource.slang.impl.TextRangeImpl;
 import org.sonarsource.slang.impl.TokenImpl;
 
 public class CpdVisitor extends PullRequestAwareVisitor {
-  static final char ASCII_UNIT_SEPARATOR = 31;
-  static final char ASCII_RECORD_SEPARATOR = 30;
+  // First byte of the binary format, which the text format of the previous versions never started with
+  static final byte BINARY_FORMAT_MARKER = 0;
+  static final byte BINARY_FORMAT_VERSION = 2;
   private static final Logger LOG = LoggerFactory.getLogger(CpdVisitor.class.getName());
 
   public CpdVisitor() {
@@ -72,7 +73,7 @@ public class CpdVisitor extends PullRequestAwareVisitor {
       String fileKey = ctx.inputFile.key();
       LOG.debug("Looking up cached CPD tokens for {} ...", fileKey);
       ReadCache cache = ctx.sensorContext.previousCache();
-      String key = computeCacheKey(ctx.inputFile);
+      String key = computeCacheKey(ctx);
       if (cache.contains(key)) {
         LOG.debug("Found cached CPD tokens for {}.", fileKey);
         LOG.debug("Loading cached CPD tokens for {} ...", fileKey);
@@ -105,7 +106,7 @@ public class CpdVisitor extends PullRequestAwareVisitor {
     if (ctx.sensorContext.isCacheEnabled()) {
       try {
         ctx.sensorContext.nextCache().write(
-          computeCacheKey(ctx.inputFile),
+          computeCacheKey(ctx),
           serialize(tokens)
         );
       } catch (IllegalArgumentException e) {
@@ -118,39 +119,83 @@ public class CpdVisitor extends PullRequestAwareVisitor {
    * Computes a unique key for a file that can be used to store its CPD tokens in a cache.
    */
   // VisibleForTesting
-  static String computeCacheKey(InputFile inputFile) {
-    return "slang:cpd-tokens:%s".formatted(inputFile.key());
+  static String computeCacheKey(InputFileContext ctx) {
+    return ctx.cacheKey("cpd-tokens");
   }
 
   /**
-   * Transforms a list of tokens into a byte array for caching.
+   * Transforms a list of tokens into a byte array for caching, in the binary format:
+   * <ul>
+   *   <li>the {@link #BINARY_FORMAT_MARKER} and {@link #BINARY_FORMAT_VERSION} bytes,</li>
+   *   <li>the table of the names of the token types used, and the table of the distinct token texts: for each table
+   *   its size, then the length and UTF-8 bytes of each entry,</li>
+   *   <li>the number of tokens, then for each token the index of its type and of its text in the tables, and the 4
+   *   positions of its range. Positions are relative to the end of the previous token when on the
+   *   same line, and all numbers are varints, zigzag encoded for the positions.</li>
+   * </ul>
    * Must be reversible by {@link #deserialize(byte[])}.
    */
   // VisibleForTesting
   static byte[] serialize(List<Token> tokens) {
-    return tokens.stream()
-      .map(CpdVisitor::serialize)
-      .collect(Collectors.joining(String.valueOf(ASCII_RECORD_SEPARATOR)))
-      .getBytes(StandardCharsets.UTF_8);
+    Map<Token.Type, Integer> typeIndexes = new EnumMap<>(Token.Type.class);
+    List<byte[]> types = new ArrayList<>();
+    Map<String, Integer> textIndexes = new HashMap<>();
+    List<byte[]> texts = new ArrayList<>();
+    ByteArrayOutputStream body = new ByteArrayOutputStream(tokens.size() * 8);
+    int previousLine = 1;
+    int previousLineOffset = 0;
+    for (Token token : tokens) {
+      writeUnsigned(body, typeIndexes.computeIfAbsent(token.type(), type -> addEntry(types, type.name())));
+      writeUnsigned(body, textIndexes.computeIfAbsent(token.text(), text -> addEntry(texts, text)));
+      TextPointer start = token.textRange().start();
+      TextPointer end = token.textRange().end();
+      writeSigned(body, start.line() - previousLine);
+      writeSigned(body, start.line() == previousLine ? (start.lineOffset() - previousLineOffset) : start.lineOffset());
+      writeSigned(body, end.line() - start.line());
+      writeSigned(body, end.line() == start.line() ? (end.lineOffset() - start.lineOffset()) : end.lineOffset());
+      previousLine = end.line();
+      previousLineOffset = end.lineOffset();
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream(body.size() + (types.size() + texts.size()) * 8 + 8);
+    out.write(BINARY_FORMAT_MARKER);
+    out.write(BINARY_FORMAT_VERSION);
+    writeTable(out, types);
+    writeTable(out, texts);
+    writeUnsigned(out, tokens.size());
+    out.writeBytes(body.toByteArray());
+    return out.toByteArray();
+  }
+
+  private static int addEntry(List<byte[]> table, String entry) {
+    table.add(entry.getBytes(StandardCharsets.UTF_8));
+    return table.size() - 1;
+  }
+
+  private static void writeTable(ByteArrayOutputStream out, List<byte[]> table) {
+    writeUnsigned(out, table.size());
+    for (byte[] entry : table) {
+      writeUnsigned(out, entry.length);
+      out.writeBytes(entry);
+    }
   }
 
-  private static String serialize(Token token) {
-    TextRange textRange = token.textRange();
-    return String.format(
-      "%d,%d,%d,%d%c%s%c%s",
-      textRange.start().line(),
-      textRange.start().lineOffset(),
-      textRange.end().line(),
-      textRange.end().lineOffset(),
-      ASCII_UNIT_SEPARATOR,
-      token.text(),
-      ASCII_UNIT_SEPARATOR,
-      token.type()
-    );
+  private static void writeSigned(ByteArrayOutputStream out, int value) {
+    writeUnsigned(out, (value << 1) ^ (value >> 31));
+  }
+
+  private static void writeUnsigned(ByteArrayOutputStream out, int value) {
+    int remaining = value;
+    while ((remaining & ~0x7F) != 0) {
+      out.write((remaining & 0x7F) | 0x80);
+      remaining >>>= 7;
+    }
+    out.write(remaining);
   }
 
   /**
    * Deserialize a byte array, serialized by {@link #serialize(List)}, into a list of tokens.
+   * The text format of the previous versions, with one record per token, is not supported: as the keys of the cached
+   * results change with the version of the plugin, it is never read.
    *
    * @throws IllegalArgumentException - when failing to deserialize (eg: unexpected format)
    */
@@ -159,13 +204,9 @@ public class CpdVisitor extends PullRequestAwareVisitor {
     if (serialized.length == 0) {
       return Collections.emptyList();
     }
-    String str = new String(serialized, StandardCharsets.UTF_8);
-    String[] tokensAsStrings = str.split(String.valueOf(ASCII_RECORD_SEPARATOR));
     try {
-      return Arrays.stream(tokensAsStrings)
-        .map(CpdVisitor::deserialize)
-        .toList();
-    } catch (IllegalArgumentException | IndexOutOfBoundsException | NoSuchElementException e) {
+      return new BinaryReader(serialized).readTokens();
+    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
       throw new IllegalArgumentException(
         "Could not deserialize cached CPD tokens: %s".formatted(e.getMessage()),
         e
@@ -173,15 +214,108 @@ public class CpdVisitor extends PullRequestAwareVisitor {
     }
   }
 
-  private static Token deserialize(String tokenAsString) {
-    String[] fields = tokenAsString.split(String.valueOf(ASCII_UNIT_SEPARATOR));
-    List<Integer> rangeIndices = Arrays.stream(fields[0].split(","))
-      .map(Integer::valueOf)
-      .toList();
-    TextRange textRange = new TextRangeImpl(rangeIndices.get(0), rangeIndices.get(1), rangeIndices.get(2), rangeIndices.get(3));
-    String text = fields[1];
-    Token.Type type = Token.Type.valueOf(fields[2]);
-    return new TokenImpl(textRange, text, type);
+  private static final class BinaryReader {
+
+    private final byte[] bytes;
+    private int position = 0;
+
+    private BinaryReader(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    private List<Token> readTokens() {
+      if (readByte() != BINARY_FORMAT_MARKER) {
+        throw new IllegalArgumentException("unsupported format");
+      }
+      int version = readByte();
+      if (version != BINARY_FORMAT_VERSION) {
+        throw new IllegalArgumentException("unsupported format version " + version);
+      }
+      String[] typeNames = readTable();
+      Token.Type[] types = new Token.Type[typeNames.length];
+      for (int i = 0; i < types.length; i++) {
+        types[i] = tokenType(typeNames[i]);
+      }
+      String[] texts = readTable();
+      int tokenCount = readLength();
+      List<Token> tokens = new ArrayList<>(tokenCount);
+      int previousLine = 1;
+      int previousLineOffset = 0;
+      for (int i = 0; i < tokenCount; i++) {
+        Token.Type type = types[readUnsigned()];
+        String text = texts[readUnsigned()];
+        int startLine = previousLine + readSigned();
+        int startLineOffset = startLine == previousLine ? (previousLineOffset + readSigned()) : readSigned();
+        int endLine = startLine + readSigned();
+        int endLineOffset = endLine == startLine ? (startLineOffset + readSigned()) : readSigned();
+        tokens.add(new TokenImpl(new TextRangeImpl(startLine, startLineOffset, endLine, endLineOffset), text, type));
+        previousLine = endLine;
+        previousLineOffset = endLineOffset;
+      }
+      if (position != bytes.length) {
+        throw new IllegalArgumentException("unexpected data at " + position);
+      }
+      return tokens;
+    }
+
+    private String[] readTable() {
+      String[] table = new String[readLength()];
+      for (int i = 0; i < table.length; i++) {
+        int length = readLength();
+        table[i] = new String(bytes, position, length, StandardCharsets.UTF_8);
+        position += length;
+      }
+      return table;
+    }
+
+    private static Token.Type tokenType(String name) {
+      for (Token.Type type : Token.Type.values()) {
+        if (type.name().equals(name)) {
+          return type;
+        }
+      }
+      throw new IllegalArgumentException("unknown token type " + name);
+    }
+
+    private int readByte() {
+      if (position >= bytes.length) {
+        throw unexpectedEnd();
+      }
+      return bytes[position++] & 0xFF;
+    }
+
+    /**
+     * Reads a count or a length, which can not exceed the number of remaining bytes.
+     */
+    private int readLength() {
+      int length = readUnsigned();
+      if (length < 0 || length > bytes.length - position) {
+        throw unexpectedEnd();
+      }
+      return length;
+    }
+
+    private int readSigned() {
+      int value = readUnsigned();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int readUnsigned() {
+      int value = 0;
+      for (int shift = 0; shift < 32; shift += 7) {
+        int b = readByte();
+        value |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IllegalArgumentException("invalid varint at " + position);
+    }
+
+    private static IllegalArgumentException unexpectedEnd() {
+      return new IllegalArgumentException("unexpected end of data");
+    }
+
   }
 
   private static String substituteText(Token token) {
@@ -24,7 +24,10 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
 import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.config.Configuration;
@@ -73,6 +76,19 @@ class DurationStatistics {
     }
   }
 
+  /**
+   * @return a consumer recording durations measured by the caller under the id of the given objects,
+   * or null when statistics are not recorded
+   */
+  @CheckForNull
+  <T> ObjLongConsumer<T> recorder(Function<T, String> id) {
+    if (recordStat) {
+      return (object, elapsedTime) -> record(id.apply(object), elapsedTime);
+    } else {
+      return null;
+    }
+  }
+
   void record(String id, long elapsedTime) {
     stats.computeIfAbsent(id, key -> new AtomicLong(0)).addAndGet(elapsedTime);
   }
@@ -45,20 +45,41 @@ public class InputFileContext extends TreeContext {
 
   private final boolean isTestFile;
 
+  @Nullable
+  private final String cacheNamespace;
+
   public InputFileContext(SensorContext sensorContext, InputFile inputFile) {
     this(sensorContext, inputFile, false);
   }
 
   public InputFileContext(SensorContext sensorContext, InputFile inputFile, boolean isTestFile) {
+    this(sensorContext, inputFile, isTestFile, null);
+  }
+
+  /**
+   * @param cacheNamespace see {@link org.sonarsource.slang.plugin.caching.CacheNamespace}, null to cache the results
+   *                       of the file without namespace
+   */
+  public InputFileContext(SensorContext sensorContext, InputFile inputFile, boolean isTestFile, @Nullable String cacheNamespace) {
     this.sensorContext = sensorContext;
     this.inputFile = inputFile;
     this.isTestFile = isTestFile;
+    this.cacheNamespace = cacheNamespace;
   }
 
   public boolean isTestFile() {
     return isTestFile;
   }
 
+  /**
+   * @param kind the kind of cached results, e.g. "cpd-tokens"
+   * @return the key under which the given kind of results of this file is cached
+   */
+  public String cacheKey(String kind) {
+    String namespace = cacheNamespace == null ? "" : (cacheNamespace + ":");
+    return "slang:" + namespace + kind + ":" + inputFile.key();
+  }
+
   public TextRange textRange(org.sonarsource.slang.api.TextRange textRange) {
     return inputFile.newRange(
       textRange.start().line(),
@@ -73,8 +94,7 @@ public class InputFileContext extends TreeContext {
                           List<SecondaryLocation> secondaryLocations,
                           @Nullable Double gap) {
 
-    if (textRange != null && filteredRules.getOrDefault(ruleKey.toString(), Collections.emptySet())
-      .stream().anyMatch(textRange::isInside)) {
+    if (isFiltered(ruleKey, textRange)) {
       // Issue is filtered by one of the filter.
       return;
     }
@@ -102,6 +122,14 @@ public class InputFileContext extends TreeContext {
     issue.save();
   }
 
+  /**
+   * @return true if issues of the given rule are suppressed on the given range, in which case they are not reported
+   */
+  public boolean isFiltered(RuleKey ruleKey, @Nullable org.sonarsource.slang.api.TextRange textRange) {
+    return textRange != null && filteredRules.getOrDefault(ruleKey.toString(), Collections.emptySet())
+      .stream().anyMatch(textRange::isInside);
+  }
+
   public void reportAnalysisParseError(String repositoryKey, InputFile inputFile, @Nullable org.sonarsource.slang.api.TextPointer location) {
     reportAnalysisError("Unable to parse file: " + inputFile, location);
     RuleKey parsingErrorRuleKey = RuleKey.of(repositoryKey, PARSING_ERROR_RULE_KEY);
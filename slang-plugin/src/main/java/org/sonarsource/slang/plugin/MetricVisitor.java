@@ -16,10 +16,16 @@
  */
 package org.sonarsource.slang.plugin;
 
-import java.util.HashSet;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
-import java.util.Set;
 import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.measure.Metric;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.FileLinesContext;
@@ -31,15 +37,19 @@ import org.sonarsource.slang.api.FunctionDeclarationTree;
 import org.sonarsource.slang.api.TopLevelTree;
 import org.sonarsource.slang.api.Tree;
 import org.sonarsource.slang.checks.complexity.CognitiveComplexity;
-import org.sonarsource.slang.visitors.TreeVisitor;
+import org.sonarsource.slang.utils.LineSet;
+
+public class MetricVisitor extends PullRequestAwareVisitor {
+  private static final Logger LOG = LoggerFactory.getLogger(MetricVisitor.class);
+  private static final String CACHED_RESULTS_NAME = "metrics";
+  private static final int CACHE_FORMAT_VERSION = 1;
 
-public class MetricVisitor extends TreeVisitor<InputFileContext> {
   private final FileLinesContextFactory fileLinesContextFactory;
   private final Predicate<Tree> executableLineOfCodePredicate;
 
-  private Set<Integer> linesOfCode;
-  private Set<Integer> commentLines;
-  private Set<Integer> executableLines;
+  private LineSet linesOfCode;
+  private LineSet commentLines;
+  private LineSet executableLines;
   private int numberOfFunctions;
   private int numberOfClasses;
   private int complexity;
@@ -73,14 +83,14 @@ public class MetricVisitor extends TreeVisitor<InputFileContext> {
     register(BlockTree.class, (ctx, tree) -> addExecutableLines(tree.statementOrExpressions()));
   }
 
-  static Set<Integer> findNonEmptyCommentLines(Comment comment, int firstTokenLine) {
+  static LineSet findNonEmptyCommentLines(Comment comment, int firstTokenLine) {
     boolean isFileHeader = comment.textRange().end().line() < firstTokenLine;
 
     if (!isFileHeader && ! CommentAnalysisUtils.isNosonarComment(comment)) {
       return CommentAnalysisUtils.findNonEmptyCommentLines(comment.contentRange(), comment.contentText());
     }
 
-    return Set.of();
+    return new LineSet();
   }
 
   private void addExecutableLines(List<Tree> trees) {
@@ -91,17 +101,50 @@ public class MetricVisitor extends TreeVisitor<InputFileContext> {
 
   @Override
   protected void before(InputFileContext ctx, Tree root) {
-    linesOfCode = new HashSet<>();
-    commentLines = new HashSet<>();
-    executableLines = new HashSet<>();
+    reset();
+  }
+
+  private void reset() {
+    linesOfCode = new LineSet();
+    commentLines = new LineSet();
+    executableLines = new LineSet();
     numberOfFunctions = 0;
     numberOfClasses = 0;
     complexity = 0;
+    statements = 0;
     cognitiveComplexity = 0;
   }
 
   @Override
   protected void after(InputFileContext ctx, Tree root) {
+    saveMetrics(ctx);
+    writeNextResults(ctx, computeCacheKey(ctx), CACHED_RESULTS_NAME, this::serialize);
+  }
+
+  @Override
+  public boolean reusePreviousResults(InputFileContext ctx) {
+    if (!canReusePreviousResults(ctx)) {
+      return false;
+    }
+    String key = computeCacheKey(ctx);
+    byte[] cached = readPreviousResults(ctx, key, CACHED_RESULTS_NAME);
+    if (cached == null) {
+      return false;
+    }
+    try {
+      deserialize(cached);
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Failed to load cached metrics for input file {}: {}", ctx.inputFile.key(), e.getMessage());
+      return false;
+    }
+    if (!copyPreviousResults(ctx, key, CACHED_RESULTS_NAME)) {
+      return false;
+    }
+    saveMetrics(ctx);
+    return true;
+  }
+
+  private void saveMetrics(InputFileContext ctx) {
     saveMetric(ctx, CoreMetrics.NCLOC, linesOfCode().size());
     saveMetric(ctx, CoreMetrics.COMMENT_LINES, commentLines().size());
     saveMetric(ctx, CoreMetrics.FUNCTIONS, numberOfFunctions());
@@ -111,11 +154,68 @@ public class MetricVisitor extends TreeVisitor<InputFileContext> {
     saveMetric(ctx, CoreMetrics.COGNITIVE_COMPLEXITY, cognitiveComplexity);
 
     FileLinesContext fileLinesContext = fileLinesContextFactory.createFor(ctx.inputFile);
-    linesOfCode().forEach(line -> fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, line, 1));
-    executableLines().forEach(line -> fileLinesContext.setIntValue(CoreMetrics.EXECUTABLE_LINES_DATA_KEY, line, 1));
+    linesOfCode().forEachLine(line -> fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, line, 1));
+    executableLines().forEachLine(line -> fileLinesContext.setIntValue(CoreMetrics.EXECUTABLE_LINES_DATA_KEY, line, 1));
     fileLinesContext.save();
   }
 
+  /**
+   * Computes a unique key for a file that can be used to store its metrics in a cache.
+   */
+  // VisibleForTesting
+  static String computeCacheKey(InputFileContext ctx) {
+    return ctx.cacheKey("metrics");
+  }
+
+  /**
+   * Transforms the metrics of the last visited file into a byte array for caching.
+   * Must be reversible by {@link #deserialize(byte[])}.
+   */
+  // VisibleForTesting
+  byte[] serialize() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      writeFormatVersion(out, CACHE_FORMAT_VERSION);
+      writeLines(out, linesOfCode);
+      writeLines(out, commentLines);
+      writeLines(out, executableLines);
+      out.writeInt(numberOfFunctions);
+      out.writeInt(numberOfClasses);
+      out.writeInt(complexity);
+      out.writeInt(statements);
+      out.writeInt(cognitiveComplexity);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Loads the metrics serialized by {@link #serialize()}, as if the file had been visited.
+   *
+   * @throws IllegalArgumentException - when failing to deserialize (eg: unexpected format)
+   */
+  // VisibleForTesting
+  void deserialize(byte[] serialized) {
+    reset();
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(serialized))) {
+      readFormatVersion(in, CACHE_FORMAT_VERSION);
+      readLines(in, linesOfCode);
+      readLines(in, commentLines);
+      readLines(in, executableLines);
+      numberOfFunctions = in.readInt();
+      numberOfClasses = in.readInt();
+      complexity = in.readInt();
+      statements = in.readInt();
+      cognitiveComplexity = in.readInt();
+      if (in.available() > 0) {
+        throw new IllegalArgumentException("Could not deserialize cached metrics: unexpected trailing data");
+      }
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Could not deserialize cached metrics: %s".formatted(e.getMessage()), e);
+    }
+  }
+
   private static void saveMetric(InputFileContext ctx, Metric<Integer> metric, Integer value) {
     ctx.sensorContext.<Integer>newMeasure()
       .on(ctx.inputFile)
@@ -125,15 +225,15 @@ public class MetricVisitor extends TreeVisitor<InputFileContext> {
   }
 
 
-  public Set<Integer> linesOfCode() {
+  public LineSet linesOfCode() {
     return linesOfCode;
   }
 
-  public Set<Integer> commentLines() {
+  public LineSet commentLines() {
     return commentLines;
   }
 
-  public Set<Integer> executableLines() {
+  public LineSet executableLines() {
     return executableLines;
   }
 
@@ -16,13 +16,25 @@
  */
 package org.sonarsource.slang.plugin;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.cache.ReadCache;
+import org.sonarsource.slang.utils.LineSet;
 import org.sonarsource.slang.visitors.TreeVisitor;
 
 /**
  * A type of Visitor that can leverage previous results rather than recompute findings from scratch.
  */
 public abstract class PullRequestAwareVisitor extends TreeVisitor<InputFileContext> {
+  private static final Logger LOG = LoggerFactory.getLogger(PullRequestAwareVisitor.class);
+
   /**
    * Tries to copy the cached results from a previous analysis into the cache for the next one.
    *
@@ -41,4 +53,115 @@ public abstract class PullRequestAwareVisitor extends TreeVisitor<InputFileConte
       inputFileContext.sensorContext.isCacheEnabled() &&
       inputFileContext.inputFile.status() == InputFile.Status.SAME;
   }
+
+  /**
+   * Reads the results cached by the previous analysis under the given key.
+   *
+   * @param resultsName the kind of results, for logging
+   * @return the cached results, or null if they are not in the cache or can not be read
+   */
+  @CheckForNull
+  protected static byte[] readPreviousResults(InputFileContext inputFileContext, String cacheKey, String resultsName) {
+    ReadCache cache = inputFileContext.sensorContext.previousCache();
+    if (!cache.contains(cacheKey)) {
+      return null;
+    }
+    try (InputStream in = cache.read(cacheKey)) {
+      return in.readAllBytes();
+    } catch (IllegalArgumentException | IOException e) {
+      LOG.warn("Failed to load cached {} for input file {}.", resultsName, inputFileContext.inputFile.key());
+      return null;
+    }
+  }
+
+  /**
+   * Copies the results cached by the previous analysis under the given key into the cache for the next one.
+   * Should be called once the results have been successfully read, before they are saved.
+   *
+   * @return true if successful, false otherwise
+   */
+  protected static boolean copyPreviousResults(InputFileContext inputFileContext, String cacheKey, String resultsName) {
+    try {
+      inputFileContext.sensorContext.nextCache().copyFromPrevious(cacheKey);
+      return true;
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Failed to copy previous cached {} for input file {}.", resultsName, inputFileContext.inputFile.key());
+      return false;
+    }
+  }
+
+  /**
+   * Writes the results of this analysis in the cache for the next one, when the cache is enabled.
+   */
+  protected static void writeNextResults(InputFileContext inputFileContext, String cacheKey, String resultsName, Supplier<byte[]> results) {
+    if (inputFileContext.sensorContext.isCacheEnabled()) {
+      try {
+        inputFileContext.sensorContext.nextCache().write(cacheKey, results.get());
+      } catch (IllegalArgumentException e) {
+        LOG.warn("Failed to write {} to cache for input file {}: {}", resultsName, inputFileContext.inputFile.key(), e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Writes the version of the format of cached results, as their first byte, so that results cached by a version of
+   * the plugin with another format are rejected by {@link #readFormatVersion(DataInputStream, int)}.
+   */
+  protected static void writeFormatVersion(DataOutputStream out, int version) throws IOException {
+    out.writeByte(version);
+  }
+
+  /**
+   * @throws IOException if the cached results have not been written with the given format version
+   */
+  protected static void readFormatVersion(DataInputStream in, int version) throws IOException {
+    int cachedVersion = in.readUnsignedByte();
+    if (cachedVersion != version) {
+      throw new IOException("unsupported format version %d".formatted(cachedVersion));
+    }
+  }
+
+  /**
+   * Writes the given lines as ranges of consecutive lines, as most lines follow each other.
+   * Must be reversible by {@link #readLines(DataInputStream, LineSet)}.
+   */
+  protected static void writeLines(DataOutputStream out, LineSet lines) throws IOException {
+    // Lines are never negative, so the first line always starts a range
+    int[] previousLine = {-2};
+    int[] rangeCount = {0};
+    lines.forEachLine(line -> {
+      if (line != previousLine[0] + 1) {
+        rangeCount[0]++;
+      }
+      previousLine[0] = line;
+    });
+    int[] rangeBounds = new int[rangeCount[0] * 2];
+    int[] last = {-1};
+    lines.forEachLine(line -> {
+      if (last[0] < 0 || rangeBounds[last[0]] != line - 1) {
+        last[0] += 2;
+        rangeBounds[last[0] - 1] = line;
+      }
+      rangeBounds[last[0]] = line;
+    });
+    out.writeInt(rangeCount[0]);
+    for (int bound : rangeBounds) {
+      out.writeInt(bound);
+    }
+  }
+
+  /**
+   * Adds to the given set the lines written by {@link #writeLines(DataOutputStream, LineSet)}.
+   */
+  protected static void readLines(DataInputStream in, LineSet lines) throws IOException {
+    int rangeCount = in.readInt();
+    for (int i = 0; i < rangeCount; i++) {
+      int firstLine = in.readInt();
+      int lastLine = in.readInt();
+      if (firstLine < 0 || lastLine < firstLine) {
+        throw new IOException("invalid line range %d-%d".formatted(firstLine, lastLine));
+      }
+      lines.addRange(firstLine, lastLine);
+    }
+  }
 }
@@ -16,20 +16,34 @@
  */
 package org.sonarsource.slang.plugin;
 
-import java.util.HashSet;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
-import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sonar.api.issue.NoSonarFilter;
 import org.sonarsource.slang.api.Comment;
 import org.sonarsource.slang.api.TopLevelTree;
 import org.sonarsource.slang.api.Tree;
-import org.sonarsource.slang.visitors.TreeVisitor;
+import org.sonarsource.slang.utils.LineSet;
 
-public class SkipNoSonarLinesVisitor extends TreeVisitor<InputFileContext> {
+/**
+ * Reports the lines of the NOSONAR comments to the {@link NoSonarFilter}. They are cached, so that they are
+ * reported again for the unchanged file by the next analysis, along with its cached issues.
+ */
+public class SkipNoSonarLinesVisitor extends PullRequestAwareVisitor {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SkipNoSonarLinesVisitor.class);
+  private static final String CACHED_RESULTS_NAME = "NOSONAR lines";
+  private static final int CACHE_FORMAT_VERSION = 1;
 
   private final NoSonarFilter noSonarFilter;
 
-  private Set<Integer> noSonarLines;
+  private LineSet noSonarLines;
   public SkipNoSonarLinesVisitor(NoSonarFilter noSonarFilter) {
     this.noSonarFilter = noSonarFilter;
 
@@ -43,21 +57,88 @@ public class SkipNoSonarLinesVisitor extends TreeVisitor<InputFileContext> {
 
   @Override
   protected void before(InputFileContext ctx, Tree root) {
-    noSonarLines = new HashSet<>();
+    noSonarLines = new LineSet();
   }
 
   @Override
   protected void after(InputFileContext ctx, Tree root) {
     noSonarFilter.noSonarInFile(ctx.inputFile, noSonarLines);
+    writeNextResults(ctx, computeCacheKey(ctx), CACHED_RESULTS_NAME, () -> serialize(noSonarLines));
+  }
+
+  @Override
+  public boolean reusePreviousResults(InputFileContext ctx) {
+    if (!canReusePreviousResults(ctx)) {
+      return false;
+    }
+    String key = computeCacheKey(ctx);
+    byte[] cached = readPreviousResults(ctx, key, CACHED_RESULTS_NAME);
+    if (cached == null) {
+      return false;
+    }
+    LineSet cachedLines;
+    try {
+      cachedLines = deserialize(cached);
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Failed to load cached NOSONAR lines for input file {}: {}", ctx.inputFile.key(), e.getMessage());
+      return false;
+    }
+    if (!copyPreviousResults(ctx, key, CACHED_RESULTS_NAME)) {
+      return false;
+    }
+    noSonarFilter.noSonarInFile(ctx.inputFile, cachedLines);
+    return true;
+  }
+
+  /**
+   * Computes a unique key for a file that can be used to store its NOSONAR lines in a cache.
+   */
+  // VisibleForTesting
+  static String computeCacheKey(InputFileContext ctx) {
+    return ctx.cacheKey("nosonar");
+  }
+
+  /**
+   * Transforms NOSONAR lines into a byte array for caching.
+   * Must be reversible by {@link #deserialize(byte[])}.
+   */
+  // VisibleForTesting
+  static byte[] serialize(LineSet lines) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      writeFormatVersion(out, CACHE_FORMAT_VERSION);
+      writeLines(out, lines);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @throws IllegalArgumentException - when failing to deserialize (eg: unexpected format)
+   */
+  // VisibleForTesting
+  static LineSet deserialize(byte[] serialized) {
+    LineSet lines = new LineSet();
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(serialized))) {
+      readFormatVersion(in, CACHE_FORMAT_VERSION);
+      readLines(in, lines);
+      if (in.available() > 0) {
+        throw new IllegalArgumentException("Could not deserialize cached NOSONAR lines: unexpected trailing data");
+      }
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Could not deserialize cached NOSONAR lines: %s".formatted(e.getMessage()), e);
+    }
+    return lines;
   }
 
-  private static Set<Integer> findNoSonarCommentLines(Comment comment, int firstTokenLine) {
+  private static LineSet findNoSonarCommentLines(Comment comment, int firstTokenLine) {
     boolean isFileHeader = comment.textRange().end().line() < firstTokenLine;
 
     if (!isFileHeader && CommentAnalysisUtils.isNosonarComment(comment)) {
       return CommentAnalysisUtils.findNonEmptyCommentLines(comment.contentRange(), comment.contentText());
     }
 
-    return Set.of();
+    return new LineSet();
   }
 }
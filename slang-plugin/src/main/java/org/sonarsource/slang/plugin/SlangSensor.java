@@ -17,15 +17,22 @@
 package org.sonarsource.slang.plugin;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.SonarProduct;
@@ -52,8 +59,12 @@ import org.sonarsource.slang.api.ParseException;
 import org.sonarsource.slang.api.TextPointer;
 import org.sonarsource.slang.api.Tree;
 import org.sonarsource.slang.checks.api.SlangCheck;
+import org.sonarsource.slang.impl.TextInterner;
+import org.sonarsource.slang.plugin.caching.CacheNamespace;
 import org.sonarsource.slang.plugin.caching.HashCacheUtils;
+import org.sonarsource.slang.plugin.caching.TreeCacheUtils;
 import org.sonarsource.slang.plugin.converter.ASTConverterValidation;
+import org.sonarsource.slang.visitors.CompositeTreeVisitor;
 import org.sonarsource.slang.visitors.TreeVisitor;
 
 public abstract class SlangSensor implements Sensor {
@@ -65,6 +76,12 @@ public abstract class SlangSensor implements Sensor {
     && !(t instanceof FunctionDeclarationTree)
     && !(t instanceof BlockTree);
 
+  /**
+   * When set, files are read, parsed and visited by the stages of an {@link AnalysisPipeline}, with this number of
+   * parse threads and of visit threads. Files are analyzed sequentially on the sensor thread when not set.
+   */
+  public static final String PARALLELISM_KEY = "sonar.slang.parallelism";
+
   private static final Logger LOG = LoggerFactory.getLogger(SlangSensor.class);
   private static final Pattern EMPTY_FILE_CONTENT_PATTERN = Pattern.compile("\\s*+");
 
@@ -72,6 +89,7 @@ public abstract class SlangSensor implements Sensor {
   private final NoSonarFilter noSonarFilter;
   private final Language language;
   private FileLinesContextFactory fileLinesContextFactory;
+  private final TextInterner textInterner = new TextInterner();
 
   protected SlangSensor(SonarRuntime sonarRuntime, NoSonarFilter noSonarFilter, FileLinesContextFactory fileLinesContextFactory, Language language) {
     this.sonarRuntime = sonarRuntime;
@@ -89,6 +107,19 @@ public abstract class SlangSensor implements Sensor {
 
   protected abstract ASTConverter astConverter(SensorContext sensorContext);
 
+  /**
+   * Called by the sensor instead of {@link #astConverter(SensorContext)}, once per analysis thread when
+   * {@link #PARALLELISM_KEY} is set. Converters interning the texts of the trees should use the given interner: it is
+   * shared by all the files and threads of the analysis, and by the trees read from the cache.
+   */
+  protected ASTConverter astConverter(SensorContext sensorContext, TextInterner textInterner) {
+    return astConverter(sensorContext);
+  }
+
+  /**
+   * Called once per analysis thread. When {@link #PARALLELISM_KEY} is set, checks are not shared between threads as
+   * they are not expected to be thread-safe: the analysis fails if two threads get the same check instance.
+   */
   protected abstract Checks<SlangCheck> checks();
 
   protected abstract String repositoryKey();
@@ -97,36 +128,101 @@ public abstract class SlangSensor implements Sensor {
     return EXECUTABLE_LINE_PREDICATE;
   }
 
+  /**
+   * Opt-in caching of the converted trees: when not null, the tree of each converted file is stored in the cache, and
+   * an unchanged file whose previous results can not all be reused is rehydrated from it instead of being converted
+   * again. The version must change whenever the trees produced by the converter change.
+   * Worth it for converters running out of process, as the cache grows with the size of the trees.
+   */
+  @Nullable
+  protected String treeCacheVersion() {
+    return null;
+  }
+
   private boolean analyseFiles(ASTConverter converter,
     SensorContext sensorContext,
     Iterable<InputFile> inputFiles,
     ProgressReport progressReport,
     List<TreeVisitor<InputFileContext>> visitors,
     DurationStatistics statistics) {
-    if (sensorContext.canSkipUnchangedFiles()) {
-      LOG.info("The {} analyzer is running in a context where unchanged files can be skipped.", this.language);
-    }
-
     TestFileClassifier testFileClassifier = TestFileClassifier.of(sensorContext.config(), testFilePathPatterns());
+    String cacheNamespace = cacheNamespace(visitors);
+    String treeCacheVersion = treeCacheVersion();
 
     for (InputFile inputFile : inputFiles) {
       if (sensorContext.isCancelled()) {
         return false;
       }
-      // The path heuristic is only a fallback when the scanner has not scoped the file as a test.
-      boolean isTestFile = inputFile.type() == InputFile.Type.TEST || testFileClassifier.looksLikeTestFile(inputFile);
-      InputFileContext inputFileContext = new InputFileContext(sensorContext, inputFile, isTestFile);
-      try {
-        analyseFile(converter, inputFileContext, inputFile, visitors, statistics);
-      } catch (ParseException e) {
-        logParsingError(inputFile, e);
-        inputFileContext.reportAnalysisParseError(repositoryKey(), inputFile, e.getPosition());
-      }
+      InputFileContext inputFileContext = newInputFileContext(sensorContext, testFileClassifier, cacheNamespace, inputFile);
+      analyseInputFile(converter, inputFileContext, visitors, statistics, treeCacheVersion);
       progressReport.nextFile();
     }
     return true;
   }
 
+  /**
+   * Analyzes the files through an {@link AnalysisPipeline}: each pipeline thread lazily creates its own converter and
+   * its own visitors, so that no mutable analysis state is shared between threads.
+   */
+  private boolean analyseFilesInPipeline(SensorContext sensorContext,
+    Iterable<InputFile> inputFiles,
+    ProgressReport progressReport,
+    DurationStatistics statistics,
+    int parallelism) {
+    LOG.info("The {} analyzer is running with a parallelism of {}.", this.language, parallelism);
+    TestFileClassifier testFileClassifier = TestFileClassifier.of(sensorContext.config(), testFilePathPatterns());
+    Set<SlangCheck> checksInUse = Collections.newSetFromMap(new IdentityHashMap<>());
+    // The visitors of the first pipeline thread are created upfront, to compute the namespace of the cached results
+    List<TreeVisitor<InputFileContext>> firstVisitors = visitors(sensorContext, statistics, threadChecks(checksInUse));
+    String cacheNamespace = cacheNamespace(firstVisitors);
+    AtomicBoolean firstVisitorsTaken = new AtomicBoolean();
+    AnalysisPipeline pipeline = new AnalysisPipeline(
+      sensorContext,
+      progressReport,
+      statistics,
+      parallelism,
+      treeCacheVersion(),
+      textInterner,
+      () -> ASTConverterValidation.wrap(astConverter(sensorContext, textInterner), sensorContext.config()),
+      () -> firstVisitorsTaken.compareAndSet(false, true) ? firstVisitors : visitors(sensorContext, statistics, threadChecks(checksInUse)),
+      inputFile -> newInputFileContext(sensorContext, testFileClassifier, cacheNamespace, inputFile),
+      this::reportParseError);
+    return pipeline.run(inputFiles);
+  }
+
+  private void analyseInputFile(ASTConverter converter,
+    InputFileContext inputFileContext,
+    List<TreeVisitor<InputFileContext>> visitors,
+    DurationStatistics statistics,
+    @Nullable String treeCacheVersion) {
+    try {
+      analyseFile(converter, inputFileContext, inputFileContext.inputFile, visitors, statistics, treeCacheVersion, textInterner);
+    } catch (ParseException e) {
+      reportParseError(inputFileContext, e);
+    }
+  }
+
+  private static InputFileContext newInputFileContext(SensorContext sensorContext, TestFileClassifier testFileClassifier,
+    String cacheNamespace, InputFile inputFile) {
+    // The path heuristic is only a fallback when the scanner has not scoped the file as a test.
+    boolean isTestFile = inputFile.type() == InputFile.Type.TEST || testFileClassifier.looksLikeTestFile(inputFile);
+    return new InputFileContext(sensorContext, inputFile, isTestFile, cacheNamespace);
+  }
+
+  /**
+   * The results cached by another version of the plugin, or by another set of visitors, are not reused.
+   */
+  private String cacheNamespace(List<TreeVisitor<InputFileContext>> visitors) {
+    String pluginVersion = getClass().getPackage().getImplementationVersion();
+    return CacheNamespace.of(pluginVersion, visitors.stream().map(Object::getClass).toList());
+  }
+
+  private void reportParseError(InputFileContext inputFileContext, ParseException e) {
+    InputFile inputFile = inputFileContext.inputFile;
+    logParsingError(inputFile, e);
+    inputFileContext.reportAnalysisParseError(repositoryKey(), inputFile, e.getPosition());
+  }
+
   /**
    * Ant-style path globs used to recognise test files when the project does not configure test sources.
    * Language sensors can override to add filename conventions (e.g. {@code **&#47;*Spec.scala}).
@@ -141,27 +237,75 @@ public abstract class SlangSensor implements Sensor {
                                   InputFile inputFile,
                                   List<TreeVisitor<InputFileContext>> visitors,
                                   DurationStatistics statistics) {
-    List<TreeVisitor<InputFileContext>> canBeSkipped = new ArrayList<>();
+    analyseFile(converter, inputFileContext, inputFile, visitors, statistics, null);
+  }
+
+  @VisibleForTesting
+  static void analyseFile(ASTConverter converter,
+                                  InputFileContext inputFileContext,
+                                  InputFile inputFile,
+                                  List<TreeVisitor<InputFileContext>> visitors,
+                                  DurationStatistics statistics,
+                                  @Nullable String treeCacheVersion) {
+    analyseFile(converter, inputFileContext, inputFile, visitors, statistics, treeCacheVersion, new TextInterner());
+  }
+
+  @VisibleForTesting
+  static void analyseFile(ASTConverter converter,
+                                  InputFileContext inputFileContext,
+                                  InputFile inputFile,
+                                  List<TreeVisitor<InputFileContext>> visitors,
+                                  DurationStatistics statistics,
+                                  @Nullable String treeCacheVersion,
+                                  TextInterner textInterner) {
+    SourceFile sourceFile = readFile(inputFileContext, visitors, treeCacheVersion, textInterner);
+    if (sourceFile != null) {
+      Tree tree = parseFile(converter, sourceFile, statistics);
+      visitFile(sourceFile, tree, visitors, statistics);
+    }
+  }
+
+  /**
+   * First stage of the analysis of a file: reuses the results of the previous analysis when the file is unchanged,
+   * and reads its content otherwise.
+   *
+   * @param treeCacheVersion see {@link #treeCacheVersion()}, null when trees are not cached
+   * @param textInterner interner of the texts of the tree read from the cache
+   * @return the file to parse, or null when there is nothing left to do for this file
+   */
+  @Nullable
+  static SourceFile readFile(InputFileContext inputFileContext, List<TreeVisitor<InputFileContext>> visitors, @Nullable String treeCacheVersion,
+    TextInterner textInterner) {
+    InputFile inputFile = inputFileContext.inputFile;
+    Set<Integer> reusedVisitors = new HashSet<>();
     if (fileCanBeSkipped(inputFileContext)) {
       String fileKey = inputFile.key();
       LOG.debug("Checking that previous results can be reused for input file {}.", fileKey);
 
-      Map<PullRequestAwareVisitor, Boolean> successfulCacheReuseByVisitor = visitors.stream()
-        .filter(PullRequestAwareVisitor.class::isInstance)
-        .map(PullRequestAwareVisitor.class::cast)
-        .collect(Collectors.toMap(visitor -> visitor, visitor -> reusePreviousResults(visitor, inputFileContext)));
+      Map<Integer, Boolean> successfulCacheReuseByVisitor = IntStream.range(0, visitors.size())
+        .filter(index -> visitors.get(index) instanceof PullRequestAwareVisitor)
+        .boxed()
+        .collect(Collectors.toMap(index -> index, index -> reusePreviousResults((PullRequestAwareVisitor) visitors.get(index), inputFileContext)));
 
       boolean allVisitorsSuccessful = successfulCacheReuseByVisitor.values().stream().allMatch(Boolean.TRUE::equals);
       if (allVisitorsSuccessful) {
         LOG.debug("Skipping input file {} (status is unchanged).", fileKey);
         HashCacheUtils.copyFromPrevious(inputFileContext);
-        return;
+        if (treeCacheVersion != null) {
+          TreeCacheUtils.copyFromPrevious(inputFileContext, treeCacheVersion);
+        }
+        return null;
       }
-      LOG.debug("Will convert input file {} for full analysis.", fileKey);
       successfulCacheReuseByVisitor.entrySet().stream()
         .filter(Map.Entry::getValue)
         .map(Map.Entry::getKey)
-        .forEach(canBeSkipped::add);
+        .forEach(reusedVisitors::add);
+      Tree cachedTree = treeCacheVersion == null ? null : TreeCacheUtils.readTreeFromPrevious(inputFileContext, treeCacheVersion, textInterner);
+      if (cachedTree != null) {
+        LOG.debug("Will reuse the cached tree of input file {} for full analysis.", fileKey);
+        return new SourceFile(inputFileContext, null, inputFile.toString(), reusedVisitors, null, cachedTree);
+      }
+      LOG.debug("Will convert input file {} for full analysis.", fileKey);
     }
     String content;
     String fileName;
@@ -173,31 +317,64 @@ public abstract class SlangSensor implements Sensor {
     }
 
     if (EMPTY_FILE_CONTENT_PATTERN.matcher(content).matches()) {
-      return;
+      return null;
     }
+    return new SourceFile(inputFileContext, content, fileName, reusedVisitors, treeCacheVersion, null);
+  }
 
+  /**
+   * Second stage of the analysis of a file: converts its content into a tree, unless its tree has been read from the cache.
+   */
+  static Tree parseFile(ASTConverter converter, SourceFile sourceFile, DurationStatistics statistics) {
+    if (sourceFile.cachedTree != null) {
+      return sourceFile.cachedTree;
+    }
     Tree tree = statistics.time("Parse", () -> {
       try {
-        return converter.parse(content, fileName);
+        return converter.parse(sourceFile.content, sourceFile.fileName);
       } catch (RuntimeException e) {
-        throw toParseException("parse", inputFile, e);
+        throw toParseException("parse", sourceFile.inputFileContext.inputFile, e);
       }
     });
-    for (TreeVisitor<InputFileContext> visitor : visitors) {
+    if (sourceFile.treeCacheVersion != null) {
+      statistics.time("TreeCache", () -> TreeCacheUtils.writeTreeForNextAnalysis(sourceFile.inputFileContext, sourceFile.treeCacheVersion, tree));
+    }
+    return tree;
+  }
+
+  /**
+   * Last stage of the analysis of a file: runs the visitors whose previous results have not been reused.
+   * The visitor list must have the same order as the one given to {@link #readFile(InputFileContext, List, String, TextInterner)}.
+   */
+  static void visitFile(SourceFile sourceFile, Tree tree, List<TreeVisitor<InputFileContext>> visitors, DurationStatistics statistics) {
+    InputFileContext inputFileContext = sourceFile.inputFileContext;
+    List<TreeVisitor<InputFileContext>> visitorsToRun = IntStream.range(0, visitors.size())
+      .filter(index -> !sourceFile.reusedVisitors.contains(index))
+      .mapToObj(visitors::get)
+      .toList();
+    if (!visitorsToRun.isEmpty()) {
+      // All the visitors share a single traversal of the tree, a failing one does not prevent the others to go on
       try {
-        if (canBeSkipped.contains(visitor)) {
-          continue;
+        if (visitorsToRun.size() == 1) {
+          TreeVisitor<InputFileContext> visitor = visitorsToRun.get(0);
+          statistics.time(visitor.getClass().getSimpleName(), () -> visitor.scan(inputFileContext, tree));
+        } else {
+          new CompositeTreeVisitor<>(visitorsToRun, SlangSensor::reportVisitorFailure,
+            statistics.<TreeVisitor<InputFileContext>>recorder(visitor -> visitor.getClass().getSimpleName()))
+            .scan(inputFileContext, tree);
         }
-        String visitorId = visitor.getClass().getSimpleName();
-        statistics.time(visitorId, () -> visitor.scan(inputFileContext, tree));
       } catch (RuntimeException e) {
-        inputFileContext.reportAnalysisError(e.getMessage(), null);
-        LOG.error("Cannot analyse '" + inputFile +"': " + e.getMessage(), e);
+        reportVisitorFailure(inputFileContext, e);
       }
     }
     writeHashToCache(inputFileContext);
   }
 
+  private static void reportVisitorFailure(InputFileContext inputFileContext, RuntimeException e) {
+    inputFileContext.reportAnalysisError(e.getMessage(), null);
+    LOG.error("Cannot analyse '" + inputFileContext.inputFile + "': " + e.getMessage(), e);
+  }
+
   private static boolean fileCanBeSkipped(InputFileContext inputFileContext) {
     SensorContext sensorContext = inputFileContext.sensorContext;
     if (!sensorContext.canSkipUnchangedFiles()) {
@@ -251,37 +428,112 @@ public abstract class SlangSensor implements Sensor {
     ProgressReport progressReport = new ProgressReport("Progress of the " + language.getName() + " analysis", TimeUnit.SECONDS.toMillis(10));
     progressReport.start(filenames);
     boolean success = false;
-    ASTConverter converter = ASTConverterValidation.wrap(astConverter(sensorContext), sensorContext.config());
     try {
-      success = analyseFiles(converter, sensorContext, inputFiles, progressReport, visitors(sensorContext, statistics), statistics);
+      success = analyseFiles(sensorContext, inputFiles, progressReport, statistics);
     } finally {
       if (success) {
         progressReport.stop();
       } else {
         progressReport.cancel();
       }
-      converter.terminate();
     }
     statistics.log();
   }
 
+  private boolean analyseFiles(SensorContext sensorContext, Iterable<InputFile> inputFiles, ProgressReport progressReport, DurationStatistics statistics) {
+    if (sensorContext.canSkipUnchangedFiles()) {
+      LOG.info("The {} analyzer is running in a context where unchanged files can be skipped.", this.language);
+    }
+    Optional<Integer> parallelism = parallelism(sensorContext);
+    if (parallelism.isPresent()) {
+      return analyseFilesInPipeline(sensorContext, inputFiles, progressReport, statistics, parallelism.get());
+    }
+    ASTConverter converter = ASTConverterValidation.wrap(astConverter(sensorContext, textInterner), sensorContext.config());
+    try {
+      return analyseFiles(converter, sensorContext, inputFiles, progressReport, visitors(sensorContext, statistics), statistics);
+    } finally {
+      converter.terminate();
+    }
+  }
+
+  private static Optional<Integer> parallelism(SensorContext sensorContext) {
+    Optional<Integer> parallelism = sensorContext.config().getInt(PARALLELISM_KEY);
+    if (parallelism.isPresent() && parallelism.get() < 1) {
+      throw new IllegalStateException("Invalid value for '" + PARALLELISM_KEY + "': " + parallelism.get() + ", expected a positive integer.");
+    }
+    return parallelism;
+  }
+
+  /**
+   * Checks for one pipeline thread: fails if {@link #checks()} returns check instances already used by another thread.
+   */
+  private Checks<SlangCheck> threadChecks(Set<SlangCheck> checksInUse) {
+    Checks<SlangCheck> checks = checks();
+    synchronized (checksInUse) {
+      for (SlangCheck check : checks.all()) {
+        if (!checksInUse.add(check)) {
+          throw new IllegalStateException("The " + language.getName() + " analysis threads can not share check instances: "
+            + "checks() must return new instances when '" + PARALLELISM_KEY + "' is set.");
+        }
+      }
+    }
+    return checks;
+  }
+
   private List<TreeVisitor<InputFileContext>> visitors(SensorContext sensorContext, DurationStatistics statistics) {
+    return visitors(sensorContext, statistics, checks());
+  }
+
+  private List<TreeVisitor<InputFileContext>> visitors(SensorContext sensorContext, DurationStatistics statistics, Checks<SlangCheck> checks) {
     if (sensorContext.runtime().getProduct() == SonarProduct.SONARLINT) {
       return Arrays.asList(
         new IssueSuppressionVisitor(),
         new SkipNoSonarLinesVisitor(noSonarFilter),
-        new ChecksVisitor(checks(), statistics)
+        new ChecksVisitor(checks, statistics)
       );
     } else {
       return Arrays.asList(
         new IssueSuppressionVisitor(),
         new MetricVisitor(fileLinesContextFactory, executableLineOfCodePredicate()),
         new SkipNoSonarLinesVisitor(noSonarFilter),
-        new ChecksVisitor(checks(), statistics),
+        new ChecksVisitor(checks, statistics),
         new CpdVisitor(),
         new SyntaxHighlighter()
       );
     }
   }
 
+  /**
+   * A file whose content has been read, or whose tree has been read from the cache, waiting to be parsed and visited.
+   */
+  static final class SourceFile {
+
+    private final InputFileContext inputFileContext;
+    @Nullable
+    private final String content;
+    private final String fileName;
+    // Indexes, in the visitor list, of the visitors which successfully reused their previous results
+    private final Set<Integer> reusedVisitors;
+    // Version under which the converted tree is cached, null when trees are not cached or when already read from the cache
+    @Nullable
+    private final String treeCacheVersion;
+    @Nullable
+    private final Tree cachedTree;
+
+    private SourceFile(InputFileContext inputFileContext, @Nullable String content, String fileName, Set<Integer> reusedVisitors,
+      @Nullable String treeCacheVersion, @Nullable Tree cachedTree) {
+      this.inputFileContext = inputFileContext;
+      this.content = content;
+      this.fileName = fileName;
+      this.reusedVisitors = reusedVisitors;
+      this.treeCacheVersion = treeCacheVersion;
+      this.cachedTree = cachedTree;
+    }
+
+    InputFileContext inputFileContext() {
+      return inputFileContext;
+    }
+
+  }
+
 }
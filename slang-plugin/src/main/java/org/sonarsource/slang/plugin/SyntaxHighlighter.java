@@ -16,6 +16,17 @@
  */
 package org.sonarsource.slang.plugin;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
 import org.sonar.api.batch.sensor.highlighting.TypeOfText;
 import org.sonarsource.slang.api.LiteralTree;
@@ -24,17 +35,25 @@ import org.sonarsource.slang.api.TextRange;
 import org.sonarsource.slang.api.Token;
 import org.sonarsource.slang.api.TopLevelTree;
 import org.sonarsource.slang.api.Tree;
-import org.sonarsource.slang.visitors.TreeVisitor;
 
 import static org.sonar.api.batch.sensor.highlighting.TypeOfText.COMMENT;
 import static org.sonar.api.batch.sensor.highlighting.TypeOfText.CONSTANT;
 import static org.sonar.api.batch.sensor.highlighting.TypeOfText.KEYWORD;
 import static org.sonar.api.batch.sensor.highlighting.TypeOfText.STRING;
 
-public class SyntaxHighlighter extends TreeVisitor<InputFileContext> {
+public class SyntaxHighlighter extends PullRequestAwareVisitor {
+  private static final Logger LOG = LoggerFactory.getLogger(SyntaxHighlighter.class);
+  private static final String CACHED_RESULTS_NAME = "highlighting";
+  private static final int CACHE_FORMAT_VERSION = 1;
 
   private NewHighlighting newHighlighting;
 
+  /**
+   * Highlighted ranges of the visited file, only when the cache is enabled.
+   */
+  @Nullable
+  private CachedHighlighting cachedHighlighting;
+
   public SyntaxHighlighter() {
     register(TopLevelTree.class, (ctx, tree) -> {
       tree.allComments().forEach(
@@ -52,15 +71,143 @@ public class SyntaxHighlighter extends TreeVisitor<InputFileContext> {
   protected void before(InputFileContext ctx, Tree root) {
     newHighlighting = ctx.sensorContext.newHighlighting()
       .onFile(ctx.inputFile);
+    cachedHighlighting = ctx.sensorContext.isCacheEnabled() ? new CachedHighlighting() : null;
   }
 
   @Override
   protected void after(InputFileContext ctx, Tree root) {
     newHighlighting.save();
+    if (cachedHighlighting != null) {
+      writeNextResults(ctx, computeCacheKey(ctx), CACHED_RESULTS_NAME, cachedHighlighting::toByteArray);
+      cachedHighlighting = null;
+    }
+  }
+
+  @Override
+  public boolean reusePreviousResults(InputFileContext ctx) {
+    if (!canReusePreviousResults(ctx)) {
+      return false;
+    }
+    String key = computeCacheKey(ctx);
+    byte[] cached = readPreviousResults(ctx, key, CACHED_RESULTS_NAME);
+    if (cached == null) {
+      return false;
+    }
+    NewHighlighting reusedHighlighting = ctx.sensorContext.newHighlighting().onFile(ctx.inputFile);
+    try {
+      deserialize(cached, reusedHighlighting, ctx);
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Failed to load cached highlighting for input file {}: {}", ctx.inputFile.key(), e.getMessage());
+      return false;
+    }
+    if (!copyPreviousResults(ctx, key, CACHED_RESULTS_NAME)) {
+      return false;
+    }
+    reusedHighlighting.save();
+    return true;
   }
 
   private void highlight(InputFileContext ctx, TextRange range, TypeOfText typeOfText) {
     newHighlighting.highlight(ctx.textRange(range), typeOfText);
+    if (cachedHighlighting != null) {
+      cachedHighlighting.add(range, typeOfText);
+    }
+  }
+
+  /**
+   * Computes a unique key for a file that can be used to store its highlighting in a cache.
+   */
+  // VisibleForTesting
+  static String computeCacheKey(InputFileContext ctx) {
+    return ctx.cacheKey("highlighting");
+  }
+
+  /**
+   * Adds to the given highlighting the ranges serialized by {@link CachedHighlighting#toByteArray()}.
+   *
+   * @throws IllegalArgumentException - when failing to deserialize (eg: unexpected format or range out of the file)
+   */
+  // VisibleForTesting
+  static void deserialize(byte[] serialized, NewHighlighting highlighting, InputFileContext ctx) {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(serialized))) {
+      readFormatVersion(in, CACHE_FORMAT_VERSION);
+      TypeOfText[] types = new TypeOfText[in.readUnsignedByte()];
+      for (int i = 0; i < types.length; i++) {
+        types[i] = typeOfText(in.readUTF());
+      }
+      while (in.available() > 0) {
+        int startLine = in.readInt();
+        int startLineOffset = in.readInt();
+        int endLine = in.readInt();
+        int endLineOffset = in.readInt();
+        int type = in.readUnsignedByte();
+        if (type >= types.length) {
+          throw new IllegalArgumentException("Could not deserialize cached highlighting: unknown type of text index " + type);
+        }
+        highlighting.highlight(ctx.inputFile.newRange(startLine, startLineOffset, endLine, endLineOffset), types[type]);
+      }
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Could not deserialize cached highlighting: %s".formatted(e.getMessage()), e);
+    }
+  }
+
+  private static TypeOfText typeOfText(String name) {
+    for (TypeOfText type : TypeOfText.values()) {
+      if (type.name().equals(name)) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Could not deserialize cached highlighting: unknown type of text " + name);
+  }
+
+  /**
+   * Highlighted ranges of a file, serialized for caching: the format version, the table of the names of the types of
+   * text used, then for each range 4 integers and the index of its type of text in the table on a byte.
+   * Names are cached rather than ordinals, which could change with the plugin API.
+   */
+  // VisibleForTesting
+  static final class CachedHighlighting {
+
+    private final Map<TypeOfText, Integer> typeIndexes = new EnumMap<>(TypeOfText.class);
+    private final ByteArrayOutputStream ranges = new ByteArrayOutputStream();
+
+    void add(TextRange range, TypeOfText typeOfText) {
+      writeInt(ranges, range.start().line());
+      writeInt(ranges, range.start().lineOffset());
+      writeInt(ranges, range.end().line());
+      writeInt(ranges, range.end().lineOffset());
+      ranges.write(typeIndexes.computeIfAbsent(typeOfText, type -> typeIndexes.size()));
+    }
+
+    /**
+     * Must be reversible by {@link #deserialize(byte[], NewHighlighting, InputFileContext)}.
+     */
+    byte[] toByteArray() {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(ranges.size() + 64);
+      try (DataOutputStream out = new DataOutputStream(bytes)) {
+        writeFormatVersion(out, CACHE_FORMAT_VERSION);
+        out.writeByte(typeIndexes.size());
+        TypeOfText[] types = new TypeOfText[typeIndexes.size()];
+        typeIndexes.forEach((type, index) -> types[index] = type);
+        for (TypeOfText type : types) {
+          out.writeUTF(type.name());
+        }
+        ranges.writeTo(out);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return bytes.toByteArray();
+    }
+
+    /**
+     * Same big-endian encoding as {@link DataOutputStream#writeInt(int)}, without wrapping the stream.
+     */
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+      out.write(value >>> 24);
+      out.write(value >>> 16);
+      out.write(value >>> 8);
+      out.write(value);
+    }
   }
 
 }
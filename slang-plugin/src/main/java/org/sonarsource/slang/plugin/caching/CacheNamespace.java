@@ -0,0 +1,55 @@
+/*
+ * SonarSource SLang
+ * Copyright (C) 2018-2026 SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.slang.plugin.caching;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * A utility class computing the namespace of the keys under which an analysis caches its results: the results cached
+ * by another version of the plugin, or by another set of visitors, are not found by the next analysis.
+ */
+public class CacheNamespace {
+
+  private static final int LENGTH = 16;
+
+  private CacheNamespace() {
+    /* Instances of this utility class should not be created. */
+  }
+
+  /**
+   * @param pluginVersion the version of the plugin running the analysis, null when unknown
+   * @param visitorClasses the classes of the visitors run on each file, in the order in which they are run
+   * @return a short hexadecimal fingerprint of the given configuration
+   */
+  public static String of(@Nullable String pluginVersion, List<? extends Class<?>> visitorClasses) {
+    StringBuilder configuration = new StringBuilder();
+    configuration.append("plugin=").append(pluginVersion).append('\n');
+    visitorClasses.forEach(visitorClass -> configuration.append("visitor=").append(visitorClass.getName()).append('\n'));
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(configuration.toString().getBytes(StandardCharsets.UTF_8));
+      return Hex.encodeHexString(Arrays.copyOf(hash, LENGTH / 2));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+  }
+}
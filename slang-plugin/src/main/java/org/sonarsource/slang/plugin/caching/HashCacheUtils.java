@@ -56,7 +56,7 @@ public class HashCacheUtils {
       LOG.debug("File {} is considered changed: hash cache is disabled.", fileKey);
       return false;
     }
-    String hashKey = computeKey(inputFile);
+    String hashKey = computeKey(inputFileContext);
     ReadCache previousCache = sensorContext.previousCache();
     if (!previousCache.contains(hashKey)) {
       LOG.debug("File {} is considered changed: hash could not be found in the cache.", fileKey);
@@ -94,7 +94,7 @@ public class HashCacheUtils {
       return false;
     }
     InputFile inputFile = inputFileContext.inputFile;
-    String cacheKey = computeKey(inputFile);
+    String cacheKey = computeKey(inputFileContext);
     WriteCache nextCache = inputFileContext.sensorContext.nextCache();
     try {
       nextCache.copyFromPrevious(cacheKey);
@@ -112,7 +112,7 @@ public class HashCacheUtils {
     InputFile inputFile = inputFileContext.inputFile;
     WriteCache nextCache = inputFileContext.sensorContext.nextCache();
     try {
-      nextCache.write(computeKey(inputFileContext.inputFile), Hex.decodeHex(inputFile.md5Hash()));
+      nextCache.write(computeKey(inputFileContext), Hex.decodeHex(inputFile.md5Hash()));
     } catch (IllegalArgumentException ignored) {
       LOG.warn("Failed to write hash for {} to cache.", inputFile.key());
       return false;
@@ -123,7 +123,7 @@ public class HashCacheUtils {
     return true;
   }
 
-  private static String computeKey(InputFile inputFile) {
-    return "slang:hash:" + inputFile.key();
+  private static String computeKey(InputFileContext inputFileContext) {
+    return inputFileContext.cacheKey("hash");
   }
 }
@@ -0,0 +1,125 @@
+/*
+ * SonarSource SLang
+ * Copyright (C) 2018-2026 SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.slang.plugin.caching;
+
+import java.io.IOException;
+import java.io.InputStream;
+import javax.annotation.CheckForNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.cache.ReadCache;
+import org.sonar.api.batch.sensor.cache.WriteCache;
+import org.sonarsource.slang.api.Tree;
+import org.sonarsource.slang.impl.TextInterner;
+import org.sonarsource.slang.persistence.BinaryTree;
+import org.sonarsource.slang.plugin.InputFileContext;
+
+/**
+ * A utility class that stores the tree of a file in the cache, so that the next analysis can rehydrate it instead of
+ * converting the file again when the file is unchanged.
+ * Entries are keyed by the converter version and the MD5 hash of the file: a tree is never read back for another
+ * content or from another converter.
+ */
+public class TreeCacheUtils {
+  private static final Logger LOG = LoggerFactory.getLogger(TreeCacheUtils.class);
+
+  private TreeCacheUtils() {
+    /* Instances of this utility class should not be created. */
+  }
+
+  /**
+   * Reads the tree cached by the previous analysis and copies it for the next one.
+   * For consistency, this method should only be called if the hash matches (see {@link HashCacheUtils#hasSameHashCached}).
+   *
+   * @param textInterner interner of the texts of the tree, which can be shared with the converter
+   * @return the cached tree, or null if there is no valid tree in the cache for this file and converter version
+   */
+  @CheckForNull
+  public static Tree readTreeFromPrevious(InputFileContext inputFileContext, String converterVersion, TextInterner textInterner) {
+    SensorContext sensorContext = inputFileContext.sensorContext;
+    if (!sensorContext.isCacheEnabled()) {
+      return null;
+    }
+    InputFile inputFile = inputFileContext.inputFile;
+    String fileKey = inputFile.key();
+    String cacheKey = computeKey(inputFileContext, converterVersion);
+    ReadCache previousCache = sensorContext.previousCache();
+    if (!previousCache.contains(cacheKey)) {
+      LOG.debug("No cached tree found for input file {}.", fileKey);
+      return null;
+    }
+    Tree tree;
+    try (InputStream in = previousCache.read(cacheKey)) {
+      tree = BinaryTree.fromBinary(in.readAllBytes(), textInterner);
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Failed to load cached tree for input file {}: {}", fileKey, e.getMessage());
+      return null;
+    }
+    if (!copyFromPrevious(inputFileContext, converterVersion)) {
+      return null;
+    }
+    LOG.debug("Loaded cached tree for input file {}.", fileKey);
+    return tree;
+  }
+
+  /**
+   * Copies the tree cached by the previous analysis for the next one, without reading it.
+   *
+   * @return true if successfully copied, false if there is no cached tree or it fails to copy it
+   */
+  public static boolean copyFromPrevious(InputFileContext inputFileContext, String converterVersion) {
+    SensorContext sensorContext = inputFileContext.sensorContext;
+    if (!sensorContext.isCacheEnabled()) {
+      return false;
+    }
+    InputFile inputFile = inputFileContext.inputFile;
+    String cacheKey = computeKey(inputFileContext, converterVersion);
+    if (!sensorContext.previousCache().contains(cacheKey)) {
+      return false;
+    }
+    WriteCache nextCache = sensorContext.nextCache();
+    try {
+      nextCache.copyFromPrevious(cacheKey);
+    } catch (IllegalArgumentException ignored) {
+      LOG.warn("Failed to copy cached tree from previous analysis for {}.", inputFile.key());
+      return false;
+    }
+    return true;
+  }
+
+  public static boolean writeTreeForNextAnalysis(InputFileContext inputFileContext, String converterVersion, Tree tree) {
+    if (!inputFileContext.sensorContext.isCacheEnabled()) {
+      return false;
+    }
+    InputFile inputFile = inputFileContext.inputFile;
+    WriteCache nextCache = inputFileContext.sensorContext.nextCache();
+    try {
+      nextCache.write(computeKey(inputFileContext, converterVersion), BinaryTree.toBinary(tree));
+    } catch (RuntimeException e) {
+      LOG.warn("Failed to write tree for {} to cache: {}", inputFile.key(), e.getMessage());
+      return false;
+    }
+    return true;
+  }
+
+  // VisibleForTesting
+  static String computeKey(InputFileContext inputFileContext, String converterVersion) {
+    return inputFileContext.cacheKey("tree:" + converterVersion + ":" + inputFileContext.inputFile.md5Hash());
+  }
+}
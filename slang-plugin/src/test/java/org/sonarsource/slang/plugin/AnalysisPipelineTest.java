@@ -0,0 +1,173 @@
+/*
+ * SonarSource SLang
+ * Copyright (C) 2018-2026 SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.slang.plugin;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonarsource.analyzer.commons.ProgressReport;
+import org.sonarsource.slang.api.ParseException;
+import org.sonarsource.slang.api.TopLevelTree;
+import org.sonarsource.slang.impl.TextInterner;
+import org.sonarsource.slang.parser.SLangConverter;
+import org.sonarsource.slang.visitors.TreeVisitor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class AnalysisPipelineTest {
+
+  @TempDir
+  File baseDir;
+
+  private SensorContextTester sensorContext;
+  private ProgressReport progressReport;
+  private final Set<String> visitedFiles = ConcurrentHashMap.newKeySet();
+  private final List<String> parseErrors = Collections.synchronizedList(new ArrayList<>());
+
+  @BeforeEach
+  void setup() {
+    sensorContext = SensorContextTester.create(baseDir);
+    progressReport = mock(ProgressReport.class);
+  }
+
+  @Test
+  void every_file_goes_through_all_stages() {
+    List<InputFile> inputFiles = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      inputFiles.add(inputFile("file" + i + ".slang", "fun f" + i + "() {}"));
+    }
+    assertThat(pipeline(2, (ctx, e) -> parseErrors.add(ctx.inputFile.filename())).run(inputFiles)).isTrue();
+
+    assertThat(visitedFiles).hasSize(20);
+    assertThat(parseErrors).isEmpty();
+    verify(progressReport, times(20)).nextFile();
+  }
+
+  @Test
+  void empty_and_invalid_files_are_not_visited() {
+    List<InputFile> inputFiles = List.of(
+      inputFile("valid.slang", "fun f() {}"),
+      inputFile("empty.slang", "  \n "),
+      inputFile("invalid.slang", "class A {"));
+    assertThat(pipeline(1, (ctx, e) -> parseErrors.add(ctx.inputFile.filename())).run(inputFiles)).isTrue();
+
+    assertThat(visitedFiles).containsExactly("valid.slang");
+    assertThat(parseErrors).containsExactly("invalid.slang");
+    verify(progressReport, times(3)).nextFile();
+  }
+
+  @Test
+  void cancelled_analysis_stops_reading_files() {
+    sensorContext.setCancelled(true);
+    List<InputFile> inputFiles = List.of(inputFile("file.slang", "fun f() {}"));
+    assertThat(pipeline(2, (ctx, e) -> parseErrors.add(ctx.inputFile.filename())).run(inputFiles)).isFalse();
+
+    assertThat(visitedFiles).isEmpty();
+    verify(progressReport, times(0)).nextFile();
+  }
+
+  @Test
+  void analysis_cancelled_while_visiting_stops_the_pipeline() {
+    List<InputFile> inputFiles = List.of(inputFile("file.slang", "fun f() {}"));
+    CountDownLatch neverReleased = new CountDownLatch(1);
+    TreeVisitor<InputFileContext> hangingVisitor = new TreeVisitor<InputFileContext>()
+      .register(TopLevelTree.class, (ctx, tree) -> {
+        sensorContext.setCancelled(true);
+        try {
+          neverReleased.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+    AnalysisPipeline pipeline = pipeline(1, (ctx, e) -> parseErrors.add(ctx.inputFile.filename()), () -> hangingVisitor);
+    assertThat(pipeline.run(inputFiles)).isFalse();
+  }
+
+  @Test
+  void failure_of_a_stage_stops_the_pipeline() {
+    List<InputFile> inputFiles = List.of(
+      inputFile("valid.slang", "fun f() {}"),
+      inputFile("invalid.slang", "class A {"));
+    AnalysisPipeline pipeline = pipeline(2, (ctx, e) -> {
+      throw new IllegalStateException("BOUM");
+    });
+    assertThatThrownBy(() -> pipeline.run(inputFiles))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("BOUM");
+  }
+
+  @Test
+  void error_in_a_stage_stops_the_pipeline() {
+    List<InputFile> inputFiles = List.of(
+      inputFile("valid.slang", "fun f() {}"),
+      inputFile("invalid.slang", "class A {"));
+    AnalysisPipeline pipeline = pipeline(2, (ctx, e) -> {
+      throw new AssertionError("BOUM");
+    });
+    assertThatThrownBy(() -> pipeline.run(inputFiles))
+      .isInstanceOf(AssertionError.class)
+      .hasMessage("BOUM");
+  }
+
+  private AnalysisPipeline pipeline(int parallelism, BiConsumer<InputFileContext, ParseException> parseErrorHandler) {
+    return pipeline(parallelism, parseErrorHandler, () -> new TreeVisitor<InputFileContext>()
+      .register(TopLevelTree.class, (ctx, tree) -> visitedFiles.add(ctx.inputFile.filename())));
+  }
+
+  private AnalysisPipeline pipeline(int parallelism, BiConsumer<InputFileContext, ParseException> parseErrorHandler,
+    Supplier<TreeVisitor<InputFileContext>> visitorFactory) {
+    return new AnalysisPipeline(
+      sensorContext,
+      progressReport,
+      new DurationStatistics(sensorContext.config()),
+      parallelism,
+      null,
+      new TextInterner(),
+      SLangConverter::new,
+      () -> List.of(visitorFactory.get()),
+      inputFile -> new InputFileContext(sensorContext, inputFile),
+      parseErrorHandler);
+  }
+
+  private InputFile inputFile(String relativePath, String content) {
+    return new TestInputFileBuilder("moduleKey", relativePath)
+      .setModuleBaseDir(baseDir.toPath())
+      .setType(InputFile.Type.MAIN)
+      .setLanguage("slang")
+      .setCharset(StandardCharsets.UTF_8)
+      .setContents(content)
+      .build();
+  }
+
+}
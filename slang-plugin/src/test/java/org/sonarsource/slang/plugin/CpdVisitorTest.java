@@ -21,6 +21,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
@@ -54,8 +55,6 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
-import static org.sonarsource.slang.plugin.CpdVisitor.ASCII_RECORD_SEPARATOR;
-import static org.sonarsource.slang.plugin.CpdVisitor.ASCII_UNIT_SEPARATOR;
 import static org.sonarsource.slang.plugin.CpdVisitor.computeCacheKey;
 
 class CpdVisitorTest {
@@ -128,7 +127,7 @@ class CpdVisitorTest {
       // Produce tokens
       new CpdVisitor().scan(inputFileContext, root);
 
-      String cacheKey = computeCacheKey(inputFile);
+      String cacheKey = computeCacheKey(inputFileContext);
       assertThat(nextCache.persisted)
         .hasSize(1)
         .containsKey(cacheKey);
@@ -150,7 +149,7 @@ class CpdVisitorTest {
     void tokens_are_not_persisted_when_the_cache_already_contains_an_entry_for_the_file() {
       // Set up the cache where will be writing but where an entry already exists
       var cache = new DummyWriteCache();
-      String cacheKey = computeCacheKey(inputFile);
+      String cacheKey = computeCacheKey(inputFileContext);
       cache.persisted.put(cacheKey, new byte[]{});
       sensorContext.setNextCache(cache);
 
@@ -388,33 +387,102 @@ class CpdVisitorTest {
     InputFile inputFile = new TestInputFileBuilder("moduleKey", file.getName())
       .setContents("")
       .build();
-    assertThat(CpdVisitor.computeCacheKey(inputFile)).isEqualTo("slang:cpd-tokens:" + inputFile.key());
+    InputFileContext inputFileContext = new InputFileContext(SensorContextTester.create(tempFolder), inputFile);
+    assertThat(CpdVisitor.computeCacheKey(inputFileContext)).isEqualTo("slang:cpd-tokens:" + inputFile.key());
+  }
+
+  @Test
+  void test_computeCacheKey_with_namespace(@TempDir File tempFolder) throws IOException {
+    File file = File.createTempFile("file", ".tmp", tempFolder);
+    InputFile inputFile = new TestInputFileBuilder("moduleKey", file.getName())
+      .setContents("")
+      .build();
+    InputFileContext inputFileContext = new InputFileContext(SensorContextTester.create(tempFolder), inputFile, false, "0123456789abcdef");
+    assertThat(CpdVisitor.computeCacheKey(inputFileContext)).isEqualTo("slang:0123456789abcdef:cpd-tokens:" + inputFile.key());
   }
 
   @Test
   void serialize_produces_the_expected_format() {
-    assertThat(CpdVisitor.serialize(Collections.emptyList())).isEmpty();
+    assertThat(CpdVisitor.serialize(Collections.emptyList())).containsExactly(0, 2, 0, 0, 0);
     Token token = new TokenImpl(new TextRangeImpl(1, 0, 1, 6), "import", Token.Type.KEYWORD);
-    List<Token> singleToken = Collections.singletonList(token);
-    byte[] serialized = CpdVisitor.serialize(singleToken);
-    assertThat(new String(serialized, StandardCharsets.UTF_8))
-      .isNotBlank()
-      .isEqualTo("1,0,1,6" + ASCII_UNIT_SEPARATOR + "import" + ASCII_UNIT_SEPARATOR + "KEYWORD");
+    assertThat(CpdVisitor.serialize(List.of(token))).containsExactly(
+      // marker, version, 1 type name of 7 bytes, 1 text of 6 bytes
+      0, 2, 1, 7, 'K', 'E', 'Y', 'W', 'O', 'R', 'D', 1, 6, 'i', 'm', 'p', 'o', 'r', 't',
+      // 1 token: type 0, text 0, +0 line, +0 column, +0 line, +6 columns (zigzag encoded)
+      1, 0, 0, 0, 0, 0, 12);
 
     List<Token> tokens = List.of(
       new TokenImpl(new TextRangeImpl(1, 0, 1, 7), "correct", Token.Type.KEYWORD),
       new TokenImpl(new TextRangeImpl(1, 9, 1, 13), "horse", Token.Type.STRING_LITERAL),
-      new TokenImpl(new TextRangeImpl(1, 15, 1, 21), "battery", Token.Type.OTHER),
-      new TokenImpl(new TextRangeImpl(1, 23, 1, 28), "staple", Token.Type.KEYWORD)
+      new TokenImpl(new TextRangeImpl(2, 15, 3, 2), "correct", Token.Type.OTHER),
+      new TokenImpl(new TextRangeImpl(3, 0, 3, 200), "staple", Token.Type.KEYWORD)
     );
-    String tokensSerializedAsString = new String(CpdVisitor.serialize(tokens), StandardCharsets.UTF_8);
-    String[] serializedTokens = tokensSerializedAsString.split(String.valueOf(ASCII_RECORD_SEPARATOR));
-    assertThat(serializedTokens).hasSize(4);
-
-    assertThat(serializedTokens[0]).isEqualTo("1,0,1,7" + ASCII_UNIT_SEPARATOR + "correct" + ASCII_UNIT_SEPARATOR + "KEYWORD");
-    assertThat(serializedTokens[1]).isEqualTo("1,9,1,13" + ASCII_UNIT_SEPARATOR + "horse" + ASCII_UNIT_SEPARATOR + "STRING_LITERAL");
-    assertThat(serializedTokens[2]).isEqualTo("1,15,1,21" + ASCII_UNIT_SEPARATOR + "battery" + ASCII_UNIT_SEPARATOR + "OTHER");
-    assertThat(serializedTokens[3]).isEqualTo("1,23,1,28" + ASCII_UNIT_SEPARATOR + "staple" + ASCII_UNIT_SEPARATOR + "KEYWORD");
+    assertThat(CpdVisitor.serialize(tokens)).containsExactly(
+      0, 2,
+      3, 7, 'K', 'E', 'Y', 'W', 'O', 'R', 'D', 14, 'S', 'T', 'R', 'I', 'N', 'G', '_', 'L', 'I', 'T', 'E', 'R', 'A', 'L', 5, 'O', 'T', 'H', 'E', 'R',
+      3, 7, 'c', 'o', 'r', 'r', 'e', 'c', 't', 5, 'h', 'o', 'r', 's', 'e', 6, 's', 't', 'a', 'p', 'l', 'e',
+      4,
+      0, 0, 0, 0, 0, 14,
+      1, 1, 0, 4, 0, 8,
+      2, 0, 2, 30, 2, 4,
+      // a negative column delta, and a column delta on 2 bytes
+      0, 2, 0, 3, 0, 0x90, 0x03);
+  }
+
+  @Test
+  void serialized_tokens_can_be_deserialized() {
+    String content = "import util; foo(x\n * 42 \n+ \"abc\");\n/* a comment */ fun bar() {\n  return foo(x);\n}";
+    List<Token> tokens = new SLangConverter().parse(content).metaData().tokens();
+    assertThat(CpdVisitor.deserialize(CpdVisitor.serialize(tokens))).containsExactlyElementsOf(tokens);
+    assertThat(CpdVisitor.deserialize(CpdVisitor.serialize(Collections.emptyList()))).isEmpty();
+  }
+
+  @Test
+  void binary_deserialize_throws_an_IllegalArgumentException_when_deserialization_fails() {
+    byte[] serialized = CpdVisitor.serialize(List.of(new TokenImpl(new TextRangeImpl(1, 0, 1, 6), "import", Token.Type.KEYWORD)));
+
+    byte[] unsupportedVersion = serialized.clone();
+    unsupportedVersion[1] = 3;
+    assertThatThrownBy(() -> CpdVisitor.deserialize(unsupportedVersion))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Could not deserialize cached CPD tokens: unsupported format version 3");
+
+    byte[] truncated = Arrays.copyOf(serialized, serialized.length - 1);
+    assertThatThrownBy(() -> CpdVisitor.deserialize(truncated))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Could not deserialize cached CPD tokens: unexpected end of data");
+
+    byte[] trailingData = Arrays.copyOf(serialized, serialized.length + 1);
+    assertThatThrownBy(() -> CpdVisitor.deserialize(trailingData))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Could not deserialize cached CPD tokens: unexpected data at " + serialized.length);
+
+    byte[] unknownType = serialized.clone();
+    unknownType[4] = 'X';
+    assertThatThrownBy(() -> CpdVisitor.deserialize(unknownType))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Could not deserialize cached CPD tokens: unknown token type XEYWORD");
+
+    byte[] unknownTypeIndex = serialized.clone();
+    unknownTypeIndex[20] = 1;
+    assertThatThrownBy(() -> CpdVisitor.deserialize(unknownTypeIndex))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessageStartingWith("Could not deserialize cached CPD tokens:");
+
+    byte[] unknownText = serialized.clone();
+    unknownText[21] = 1;
+    assertThatThrownBy(() -> CpdVisitor.deserialize(unknownText))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessageStartingWith("Could not deserialize cached CPD tokens:");
+  }
+
+  @Test
+  void binary_format_version_1_is_rejected() {
+    // Version 1 wrote the ordinal of the token types instead of their names
+    byte[] version1 = {0, 1, 1, 6, 'i', 'm', 'p', 'o', 'r', 't', 1, (byte) Token.Type.KEYWORD.ordinal(), 0, 0, 0, 0, 12};
+    assertThatThrownBy(() -> CpdVisitor.deserialize(version1))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Could not deserialize cached CPD tokens: unsupported format version 1");
   }
 
   @Test
@@ -422,7 +490,7 @@ class CpdVisitorTest {
     // No data
     assertThat(CpdVisitor.deserialize(new byte[]{})).isEmpty();
 
-    byte[] singleSerializedToken = ("1,0,1,6" + ASCII_UNIT_SEPARATOR + "import" + ASCII_UNIT_SEPARATOR + "KEYWORD").getBytes(StandardCharsets.UTF_8);
+    byte[] singleSerializedToken = {0, 2, 1, 7, 'K', 'E', 'Y', 'W', 'O', 'R', 'D', 1, 6, 'i', 'm', 'p', 'o', 'r', 't', 1, 0, 0, 0, 0, 0, 12};
     List<Token> singleToken = CpdVisitor.deserialize(singleSerializedToken);
     Token expectedToken = new TokenImpl(
       new TextRangeImpl(1, 0, 1, 6),
@@ -430,47 +498,14 @@ class CpdVisitorTest {
       Token.Type.KEYWORD
     );
     assertThat(singleToken).containsExactly(expectedToken);
-
-    byte[] serializedTokens = (
-      "1,0,1,7" + ASCII_UNIT_SEPARATOR + "correct" + ASCII_UNIT_SEPARATOR + "KEYWORD" +
-        ASCII_RECORD_SEPARATOR +
-        "1,9,1,13" + ASCII_UNIT_SEPARATOR + "horse" + ASCII_UNIT_SEPARATOR + "STRING_LITERAL" +
-        ASCII_RECORD_SEPARATOR +
-        "1,15,1,21" + ASCII_UNIT_SEPARATOR + "battery" + ASCII_UNIT_SEPARATOR + "OTHER" +
-        ASCII_RECORD_SEPARATOR +
-        "1,23,1,28" + ASCII_UNIT_SEPARATOR + "staple" + ASCII_UNIT_SEPARATOR + "KEYWORD"
-    ).getBytes(StandardCharsets.UTF_8);
-
-    assertThat(CpdVisitor.deserialize(serializedTokens)).containsExactly(
-      new TokenImpl(new TextRangeImpl(1, 0, 1, 7), "correct", Token.Type.KEYWORD),
-      new TokenImpl(new TextRangeImpl(1, 9, 1, 13), "horse", Token.Type.STRING_LITERAL),
-      new TokenImpl(new TextRangeImpl(1, 15, 1, 21), "battery", Token.Type.OTHER),
-      new TokenImpl(new TextRangeImpl(1, 23, 1, 28), "staple", Token.Type.KEYWORD)
-    );
   }
 
   @Test
   void deserialize_throws_an_IllegalArgumentException_when_deserialization_fails() {
-    byte[] missingLineEndOffset = (
-      "1,0,1," + ASCII_UNIT_SEPARATOR + "correct" + ASCII_UNIT_SEPARATOR + "KEYWORD"
-    ).getBytes(StandardCharsets.UTF_8);
-    assertThatThrownBy(() -> CpdVisitor.deserialize(missingLineEndOffset))
-      .isInstanceOf(IllegalArgumentException.class)
-      .hasMessageStartingWith("Could not deserialize cached CPD tokens:");
-
-    byte[] nonNumericLineEndOffset = (
-      "1,0,1,vb" + ASCII_UNIT_SEPARATOR + "correct" + ASCII_UNIT_SEPARATOR + "KEYWORD"
-    ).getBytes(StandardCharsets.UTF_8);
-    assertThatThrownBy(() -> CpdVisitor.deserialize(nonNumericLineEndOffset))
+    // The text format of the previous versions
+    byte[] textFormat = ("1,0,1,6" + (char) 31 + "import" + (char) 31 + "KEYWORD").getBytes(StandardCharsets.UTF_8);
+    assertThatThrownBy(() -> CpdVisitor.deserialize(textFormat))
       .isInstanceOf(IllegalArgumentException.class)
-      .hasMessageStartingWith("Could not deserialize cached CPD tokens:");
-
-    byte[] unexpectedTokenType = (
-      "1,0,1,7" + ASCII_UNIT_SEPARATOR + "correct" + ASCII_UNIT_SEPARATOR + "UNKNOWN"
-    ).getBytes(StandardCharsets.UTF_8);
-
-    assertThatThrownBy(() -> CpdVisitor.deserialize(unexpectedTokenType))
-      .isInstanceOf(IllegalArgumentException.class)
-      .hasMessageStartingWith("Could not deserialize cached CPD tokens:");
+      .hasMessage("Could not deserialize cached CPD tokens: unsupported format");
   }
 }
@@ -61,6 +61,18 @@ class DurationStatisticsTest {
     assertThat(logTester.logs(Level.INFO).get(0)).isEqualTo("Duration Statistics, B 15'000 ms, A 12 ms");
   }
 
+  @Test
+  void statistics_recorder() {
+    assertThat(new DurationStatistics(sensorContext.config()).<String>recorder(String::toUpperCase)).isNull();
+
+    sensorContext.settings().setProperty("sonar.slang.duration.statistics", "true");
+    DurationStatistics statistics = new DurationStatistics(sensorContext.config());
+    statistics.<String>recorder(String::toUpperCase).accept("a", 3_000_000L);
+    statistics.record("A", 4_000_000L);
+    statistics.log();
+    assertThat(logTester.logs(Level.INFO)).containsExactly("Duration Statistics, A 7 ms");
+  }
+
   private void fillStatistics(DurationStatistics statistics) {
     StringBuilder txt = new StringBuilder();
     statistics.time("A", () -> txt.append("1")).append(2);
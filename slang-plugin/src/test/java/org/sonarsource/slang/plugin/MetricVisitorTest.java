@@ -19,6 +19,7 @@ package org.sonarsource.slang.plugin;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -31,6 +32,7 @@ import org.sonar.api.measures.FileLinesContextFactory;
 import org.sonarsource.slang.parser.SLangConverter;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -237,6 +239,34 @@ class MetricVisitorTest {
     assertThat(visitor.executableLines()).containsExactly(5, 10);
   }
 
+  @Test
+  void cached_metrics() throws Exception {
+    scan("""
+      x + 1;
+      // comment
+      fun function1() { // comment
+      x = true || false; }""");
+    byte[] serialized = visitor.serialize();
+
+    MetricVisitor cachedVisitor = new MetricVisitor(mock(FileLinesContextFactory.class), SlangSensor.EXECUTABLE_LINE_PREDICATE);
+    cachedVisitor.deserialize(serialized);
+    assertThat(cachedVisitor.linesOfCode()).containsExactly(1, 3, 4);
+    assertThat(cachedVisitor.commentLines()).containsExactly(2, 3);
+    assertThat(cachedVisitor.numberOfFunctions()).isEqualTo(1);
+    assertThat(cachedVisitor.serialize()).isEqualTo(serialized);
+
+    byte[] truncated = Arrays.copyOf(serialized, serialized.length - 1);
+    assertThatThrownBy(() -> cachedVisitor.deserialize(truncated))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessageStartingWith("Could not deserialize cached metrics:");
+
+    byte[] otherVersion = serialized.clone();
+    otherVersion[0] = 2;
+    assertThatThrownBy(() -> cachedVisitor.deserialize(otherVersion))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Could not deserialize cached metrics: unsupported format version 2");
+  }
+
   private void scan(String code) throws IOException {
     File tmpFile = File.createTempFile("file", ".tmp", tempFolder);
     inputFile = new TestInputFileBuilder("moduleKey", tmpFile.getName())
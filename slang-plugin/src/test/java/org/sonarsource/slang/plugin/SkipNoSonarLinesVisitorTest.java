@@ -27,7 +27,10 @@ import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
 import org.sonar.api.issue.NoSonarFilter;
 import org.sonarsource.slang.parser.SLangConverter;
+import org.sonarsource.slang.utils.LineSet;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
@@ -77,6 +80,25 @@ class SkipNoSonarLinesVisitorTest {
       Set.of(2, 7));
   }
 
+  @Test
+  void cached_lines() {
+    LineSet lines = new LineSet();
+    lines.addRange(2, 4);
+    lines.add(7);
+    assertThat(SkipNoSonarLinesVisitor.deserialize(SkipNoSonarLinesVisitor.serialize(lines))).containsExactly(2, 3, 4, 7);
+    assertThat(SkipNoSonarLinesVisitor.deserialize(SkipNoSonarLinesVisitor.serialize(new LineSet()))).isEmpty();
+
+    assertThatThrownBy(() -> SkipNoSonarLinesVisitor.deserialize(new byte[] {1, 0, 0, 0, 1, 0, 0, 0, 4, 0, 0, 0, 2}))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Could not deserialize cached NOSONAR lines: invalid line range 4-2");
+    assertThatThrownBy(() -> SkipNoSonarLinesVisitor.deserialize(new byte[] {1, 0, 0, 0, 0, 0}))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Could not deserialize cached NOSONAR lines: unexpected trailing data");
+    assertThatThrownBy(() -> SkipNoSonarLinesVisitor.deserialize(new byte[] {2, 0, 0, 0, 0}))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Could not deserialize cached NOSONAR lines: unsupported format version 2");
+  }
+
   private void testNosonarCommentLines(String content, Set<Integer> expectedNosonarCommentLines) throws IOException {
     InputFile inputFile = createInputFile(content);
 
@@ -22,18 +22,23 @@ import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.slf4j.event.Level;
 import org.sonar.api.SonarEdition;
 import org.sonar.api.SonarQubeSide;
 import org.sonar.api.SonarRuntime;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.TextPointer;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.batch.rule.CheckFactory;
 import org.sonar.api.batch.rule.Checks;
@@ -51,6 +56,8 @@ import org.sonar.api.resources.Language;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.Version;
 import org.sonarsource.slang.api.ASTConverter;
+import org.sonarsource.slang.api.IdentifierTree;
+import org.sonarsource.slang.api.Token;
 import org.sonarsource.slang.api.TopLevelTree;
 import org.sonarsource.slang.api.Tree;
 import org.sonarsource.analyzer.commons.appsec.TestFileClassifier;
@@ -59,13 +66,17 @@ import org.sonarsource.slang.checks.HardcodedCredentialsCheck;
 import org.sonarsource.slang.checks.IdenticalBinaryOperandCheck;
 import org.sonarsource.slang.checks.StringLiteralDuplicatedCheck;
 import org.sonarsource.slang.checks.api.SlangCheck;
+import org.sonarsource.slang.impl.TextInterner;
 import org.sonarsource.slang.parser.SLangConverter;
+import org.sonarsource.slang.persistence.BinaryTree;
 import org.sonarsource.slang.parser.SlangCodeVerifier;
+import org.sonarsource.slang.plugin.caching.CacheNamespace;
 import org.sonarsource.slang.plugin.caching.DummyReadCache;
 import org.sonarsource.slang.plugin.caching.DummyWriteCache;
 import org.sonarsource.slang.testing.AbstractSensorTest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
@@ -80,6 +91,8 @@ import static org.sonarsource.slang.testing.TextRangeAssert.assertTextRange;
 
 class SlangSensorTest extends AbstractSensorTest {
 
+  private final Set<TextInterner> converterInterners = ConcurrentHashMap.newKeySet();
+
   @Test
   void test_one_rule() {
     InputFile inputFile = createInputFile("file1.slang",
@@ -396,6 +409,26 @@ class SlangSensorTest extends AbstractSensorTest {
     assertThat(logTester.logs()).contains("Cannot analyse 'file1.slang': BOUM");
   }
 
+  @Test
+  void issues_raised_before_the_failure_of_a_check_are_reported() {
+    InputFile inputFile = createInputFile("file1.slang", "fun f() {}");
+    context.fileSystem().add(inputFile);
+    CheckFactory checkFactory = mock(CheckFactory.class);
+    var checks = mock(Checks.class);
+    SlangCheck reportingCheck = init -> init.register(TopLevelTree.class, (ctx, tree) -> ctx.reportFileIssue("file issue"));
+    SlangCheck failingCheck = init -> init.register(IdentifierTree.class, (ctx, tree) -> {
+      throw new IllegalStateException("BOUM");
+    });
+    when(checks.ruleKey(reportingCheck)).thenReturn(RuleKey.of(repositoryKey(), "reporting"));
+    when(checks.ruleKey(failingCheck)).thenReturn(RuleKey.of(repositoryKey(), "failing"));
+    when(checkFactory.create(repositoryKey())).thenReturn(checks);
+    when(checks.all()).thenReturn(List.of(reportingCheck, failingCheck));
+    sensor(checkFactory).execute(context);
+
+    assertThat(context.allAnalysisErrors()).hasSize(1);
+    assertThat(context.allIssues()).extracting(issue -> issue.primaryLocation().message()).containsExactly("file issue");
+  }
+
   @Test
   void test_descriptor() {
     DefaultSensorDescriptor sensorDescriptor = new DefaultSensorDescriptor();
@@ -428,6 +461,97 @@ class SlangSensorTest extends AbstractSensorTest {
     assertThat(issues).isEmpty();
   }
 
+  @Test
+  void test_parallel_analysis() {
+    List<InputFile> inputFiles = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      InputFile inputFile = createInputFile("file" + i + ".slang",
+        "fun main(int x) {\nprint (1 == 1); print(\"abc\"); }\nclass A {}");
+      context.fileSystem().add(inputFile);
+      inputFiles.add(inputFile);
+    }
+    context.settings().setProperty(SlangSensor.PARALLELISM_KEY, "3");
+    SlangSensor sensor = sensor(checkFactory("S1764"));
+    sensor.execute(context);
+
+    assertThat(context.allIssues()).hasSize(8);
+    // the converters of all the threads have interned their texts in the interner of the sensor
+    assertThat(converterInterners).hasSize(1);
+    String main = new String("main");
+    assertThat(converterInterners.iterator().next().intern(main)).isEqualTo("main").isNotSameAs(main);
+    for (InputFile inputFile : inputFiles) {
+      assertThat(context.highlightingTypeAt(inputFile.key(), 1, 0)).containsExactly(TypeOfText.KEYWORD);
+      assertThat(context.measure(inputFile.key(), CoreMetrics.NCLOC).value()).isEqualTo(3);
+      assertThat(context.cpdTokens(inputFile.key()).get(1).getValue()).isEqualTo("print(1==1);print(LITERAL);}");
+    }
+    assertThat(logTester.logs(Level.INFO)).contains("The SLANG analyzer is running with a parallelism of 3.");
+  }
+
+  @Test
+  void test_parallel_analysis_reports_parsing_errors() {
+    InputFile validFile = createInputFile("valid.slang", "fun main() {\nprint (1 == 1);}");
+    InputFile invalidFile = createInputFile("invalid.slang", "\n class A {\n");
+    context.fileSystem().add(validFile);
+    context.fileSystem().add(invalidFile);
+    context.settings().setProperty(SlangSensor.PARALLELISM_KEY, "2");
+    sensor(checkFactory("S1764", "ParsingError")).execute(context);
+
+    assertThat(context.allIssues())
+      .extracting(issue -> issue.ruleKey().rule())
+      .containsExactlyInAnyOrder("S1764", "ParsingError");
+    assertThat(context.allAnalysisErrors())
+      .extracting(AnalysisError::inputFile)
+      .containsExactly(invalidFile);
+  }
+
+  @Test
+  void test_parallel_cancellation() {
+    InputFile inputFile = createInputFile("file1.slang",
+      "fun main() {\nprint (1 == 1);}");
+    context.fileSystem().add(inputFile);
+    context.settings().setProperty(SlangSensor.PARALLELISM_KEY, "2");
+    context.setCancelled(true);
+    sensor(checkFactory("S1764")).execute(context);
+    assertThat(context.allIssues()).isEmpty();
+  }
+
+  @Test
+  void test_parallel_analysis_fails_when_checks_are_shared() {
+    InputFile inputFile = createInputFile("file1.slang", "fun main() {\nprint (1 == 1);}");
+    context.fileSystem().add(inputFile);
+    context.settings().setProperty(SlangSensor.PARALLELISM_KEY, "2");
+    Checks<SlangCheck> sharedChecks = checkFactory("S1764").<SlangCheck>create(repositoryKey())
+      .addAnnotatedChecks(IdenticalBinaryOperandCheck.class);
+    SlangSensor sensor = new SlangSensor(SQ_LTS_RUNTIME, new DefaultNoSonarFilter(), fileLinesContextFactory, SLANG) {
+      @Override
+      protected ASTConverter astConverter(SensorContext sensorContext) {
+        return new SLangConverter();
+      }
+
+      @Override
+      protected Checks<SlangCheck> checks() {
+        return sharedChecks;
+      }
+
+      @Override
+      protected String repositoryKey() {
+        return SlangSensorTest.this.repositoryKey();
+      }
+    };
+    assertThatThrownBy(() -> sensor.execute(context))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("The SLang analysis threads can not share check instances: checks() must return new instances when 'sonar.slang.parallelism' is set.");
+  }
+
+  @Test
+  void test_invalid_parallelism() {
+    context.settings().setProperty(SlangSensor.PARALLELISM_KEY, "0");
+    SlangSensor sensor = sensor(checkFactory("S1764"));
+    assertThatThrownBy(() -> sensor.execute(context))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Invalid value for 'sonar.slang.parallelism': 0, expected a positive integer.");
+  }
+
   @Test
   void test_sonarlint_context() {
     SonarRuntime sonarLintRuntime = SonarRuntimeImpl.forSonarLint(Version.create(3, 9));
@@ -476,6 +600,127 @@ class SlangSensorTest extends AbstractSensorTest {
     );
   }
 
+  @Test
+  void issues_of_unchanged_files_are_reported_from_the_cache() {
+    InputFile inputFile = createInputFile("file1.slang", "fun main() {\nprint (1 == 1);}", InputFile.Status.SAME);
+    DummyWriteCache firstCache = executeWithCache(inputFile, new DummyReadCache(), "S1764");
+    assertThat(context.allIssues()).hasSize(1);
+    assertThat(firstCache.persisted).containsKey(cacheKey("issues", inputFile));
+
+    DummyReadCache previousCache = new DummyReadCache();
+    previousCache.persisted.putAll(firstCache.persisted);
+    executeWithCache(inputFile, previousCache, "S1764");
+    Collection<Issue> issues = context.allIssues();
+    assertThat(issues).hasSize(1);
+    Issue issue = issues.iterator().next();
+    assertThat(issue.ruleKey().rule()).isEqualTo("S1764");
+    assertThat(issue.primaryLocation().message()).isEqualTo("Correct one of the identical sub-expressions on both sides this operator");
+    assertTextRange(issue.primaryLocation().textRange()).hasRange(2, 12, 2, 13);
+    assertThat(issue.flows()).hasSize(1);
+    assertThat(logTester.logs(Level.DEBUG)).contains("Skipping input file moduleKey:file1.slang (status is unchanged).");
+    // metrics and highlighting are reported from the cache as well
+    assertThat(context.measure(inputFile.key(), CoreMetrics.NCLOC).value()).isEqualTo(2);
+    assertThat(context.highlightingTypeAt(inputFile.key(), 1, 0)).containsExactly(TypeOfText.KEYWORD);
+    assertThat(context.highlightingTypeAt(inputFile.key(), 2, 7)).containsExactly(TypeOfText.CONSTANT);
+  }
+
+  @Test
+  void nosonar_lines_of_unchanged_files_are_reported_from_the_cache() {
+    String content = "fun main() {\nprint (1 == 1); // NOSONAR\n}";
+    InputFile inputFile = createInputFile("file1.slang", content, InputFile.Status.SAME);
+    DummyWriteCache firstCache = executeWithCache(inputFile, new DummyReadCache(), "S1764");
+    assertThat(((DefaultInputFile) inputFile).hasNoSonarAt(2)).isTrue();
+
+    DummyReadCache previousCache = new DummyReadCache();
+    previousCache.persisted.putAll(firstCache.persisted);
+    DefaultInputFile unchangedFile = (DefaultInputFile) createInputFile("file1.slang", content, InputFile.Status.SAME);
+    executeWithCache(unchangedFile, previousCache, "S1764");
+    assertThat(logTester.logs(Level.DEBUG)).contains("Skipping input file moduleKey:file1.slang (status is unchanged).");
+    assertThat(context.allIssues()).hasSize(1);
+    assertThat(unchangedFile.hasNoSonarAt(2)).isTrue();
+    assertThat(unchangedFile.hasNoSonarAt(1)).isFalse();
+  }
+
+  @Test
+  void cached_issues_are_not_reused_when_active_rules_change() {
+    InputFile inputFile = createInputFile("file1.slang", "fun main() {\nprint (1 == 1);}", InputFile.Status.SAME);
+    DummyWriteCache firstCache = executeWithCache(inputFile, new DummyReadCache(), "S1764");
+
+    DummyReadCache previousCache = new DummyReadCache();
+    previousCache.persisted.putAll(firstCache.persisted);
+    executeWithCache(inputFile, previousCache, "S1764", "S1192");
+    assertThat(context.allIssues()).hasSize(1);
+    assertThat(logTester.logs(Level.DEBUG))
+      .contains("Failed to load cached issues for input file moduleKey:file1.slang: Cached issues have been raised by different rules or rule parameters")
+      .doesNotContain("Skipping input file moduleKey:file1.slang (status is unchanged).");
+  }
+
+  @Test
+  void results_cached_without_namespace_are_not_reused() {
+    InputFile inputFile = createInputFile("file1.slang", "fun main() {\nprint (1 == 1);}", InputFile.Status.SAME);
+    DummyWriteCache firstCache = executeWithCache(inputFile, new DummyReadCache(), "S1764");
+
+    DummyReadCache previousCache = new DummyReadCache();
+    firstCache.persisted.forEach((key, value) -> previousCache.persisted.put(key.replace(cacheNamespace() + ":", ""), value));
+    DummyWriteCache nextCache = executeWithCache(inputFile, previousCache, "S1764");
+    assertThat(context.allIssues()).hasSize(1);
+    assertThat(logTester.logs(Level.DEBUG)).doesNotContain("Skipping input file moduleKey:file1.slang (status is unchanged).");
+    assertThat(nextCache.persisted).containsOnlyKeys(firstCache.persisted.keySet());
+  }
+
+  @Test
+  void cached_issues_are_not_reused_when_the_test_file_classification_changes() {
+    InputFile inputFile = createInputFile("src/test/Credentials.slang", CREDENTIALS_CONTENT, InputFile.Status.SAME);
+    DummyWriteCache firstCache = bindCaches(inputFile, new DummyReadCache());
+    context.settings().setProperty(TestFileClassifier.HEURISTIC_DISABLED_KEY, "true");
+    hardcodedCredentialsSensor(checkFactory("S2068")).execute(context);
+    assertThat(context.allIssues()).hasSize(3);
+
+    DummyReadCache previousCache = new DummyReadCache();
+    previousCache.persisted.putAll(firstCache.persisted);
+    bindCaches(inputFile, previousCache);
+    hardcodedCredentialsSensor(checkFactory("S2068")).execute(context);
+    assertThat(context.allIssues()).isEmpty();
+    assertThat(logTester.logs(Level.DEBUG))
+      .contains("Failed to load cached issues for input file moduleKey:src/test/Credentials.slang: "
+        + "Cached issues have been raised by different rules or rule parameters");
+  }
+
+  private DummyWriteCache executeWithCache(InputFile inputFile, DummyReadCache previousCache, String... ruleKeys) {
+    DummyWriteCache nextCache = bindCaches(inputFile, previousCache);
+    sensor(checkFactory(ruleKeys)).execute(context);
+    return nextCache;
+  }
+
+  private DummyWriteCache bindCaches(InputFile inputFile, DummyReadCache previousCache) {
+    context = SensorContextTester.create(baseDir);
+    context.setCanSkipUnchangedFiles(true);
+    context.setCacheEnabled(true);
+    context.setPreviousCache(previousCache);
+    DummyWriteCache nextCache = new DummyWriteCache();
+    nextCache.bind(previousCache);
+    context.setNextCache(nextCache);
+    context.fileSystem().add(inputFile);
+    return nextCache;
+  }
+
+  private static String cacheKey(String kind, InputFile inputFile) {
+    return "slang:" + cacheNamespace() + ":" + kind + ":" + inputFile.key();
+  }
+
+  /**
+   * Namespace of the results cached by a SonarQube analysis of the test sensors.
+   */
+  private static String cacheNamespace() {
+    return CacheNamespace.of(null, List.of(
+      IssueSuppressionVisitor.class,
+      MetricVisitor.class,
+      SkipNoSonarLinesVisitor.class,
+      ChecksVisitor.class,
+      CpdVisitor.class,
+      SyntaxHighlighter.class));
+  }
+
   // Content triggering S2068 through each of the three node types the check registers on:
   // an assignment, a variable declaration, and a URL string literal carrying credentials.
   // The values are realistic secrets so they are not dismissed as fake by the secret classifier.
@@ -793,6 +1038,127 @@ class SlangSensorTest extends AbstractSensorTest {
         "Skipping input file moduleKey:file1.slang (status is unchanged)."
       );
     }
+
+    @Test
+    void converted_tree_is_cached_when_tree_cache_is_enabled() {
+      visitor = spy(new FailingToReuseVisitor());
+      String treeKey = "slang:tree:1:" + inputFile.md5Hash() + ":" + inputFile.key();
+      SlangSensor.analyseFile(
+        converter,
+        inputFileContext,
+        inputFile,
+        List.of(visitor),
+        new DurationStatistics(sensorContext.config()),
+        "1"
+      );
+      verify(converter, times(1)).parse(any());
+      verify(nextCache, times(1)).write(eq(treeKey), any(byte[].class));
+      assertThat(BinaryTree.fromBinary(nextCache.persisted.get(treeKey)).metaData().tokens())
+        .extracting(Token::text)
+        .containsExactly("fun", "main", "(", ")", "{", "print", "(", "1", "==", "1", ")", ";", "}");
+    }
+
+    @Test
+    void skips_conversion_for_unchanged_file_with_cached_tree() {
+      visitor = spy(new FailingToReuseVisitor());
+      String treeKey = "slang:tree:1:" + inputFile.md5Hash() + ":" + inputFile.key();
+      DummyReadCache previousCache = (DummyReadCache) sensorContext.previousCache();
+      previousCache.persisted.put(treeKey, BinaryTree.toBinary(new SLangConverter().parse(ORIGINAL_FILE_CONTENT)));
+      SlangSensor.analyseFile(
+        converter,
+        inputFileContext,
+        inputFile,
+        List.of(visitor),
+        new DurationStatistics(sensorContext.config()),
+        "1"
+      );
+      verify(converter, never()).parse(any(String.class), any(String.class));
+      verify(visitor, times(1)).scan(eq(inputFileContext), any(Tree.class));
+      verify(nextCache, times(1)).copyFromPrevious(treeKey);
+      assertThat(logTester.logs(Level.DEBUG)).contains(
+        "Loaded cached tree for input file moduleKey:file1.slang.",
+        "Will reuse the cached tree of input file moduleKey:file1.slang for full analysis."
+      );
+    }
+
+    @Test
+    void cached_tree_is_read_with_the_interner_of_the_analysis() {
+      visitor = spy(new FailingToReuseVisitor());
+      String treeKey = "slang:tree:1:" + inputFile.md5Hash() + ":" + inputFile.key();
+      DummyReadCache previousCache = (DummyReadCache) sensorContext.previousCache();
+      previousCache.persisted.put(treeKey, BinaryTree.toBinary(new SLangConverter().parse(ORIGINAL_FILE_CONTENT)));
+      TextInterner textInterner = new TextInterner();
+      String main = textInterner.intern(new String("main"));
+      SlangSensor.analyseFile(
+        converter,
+        inputFileContext,
+        inputFile,
+        List.of(visitor),
+        new DurationStatistics(sensorContext.config()),
+        "1",
+        textInterner
+      );
+      ArgumentCaptor<Tree> tree = ArgumentCaptor.forClass(Tree.class);
+      verify(visitor, times(1)).scan(eq(inputFileContext), tree.capture());
+      assertThat(tree.getValue().metaData().tokens().get(1).text()).isSameAs(main);
+    }
+
+    @Test
+    void cached_tree_of_another_converter_version_is_not_reused() {
+      visitor = spy(new FailingToReuseVisitor());
+      DummyReadCache previousCache = (DummyReadCache) sensorContext.previousCache();
+      previousCache.persisted.put("slang:tree:1:" + inputFile.md5Hash() + ":" + inputFile.key(),
+        BinaryTree.toBinary(new SLangConverter().parse(ORIGINAL_FILE_CONTENT)));
+      SlangSensor.analyseFile(
+        converter,
+        inputFileContext,
+        inputFile,
+        List.of(visitor),
+        new DurationStatistics(sensorContext.config()),
+        "2"
+      );
+      verify(converter, times(1)).parse(any());
+      verify(nextCache, times(1)).write(eq("slang:tree:2:" + inputFile.md5Hash() + ":" + inputFile.key()), any(byte[].class));
+    }
+
+    @Test
+    void corrupted_cached_tree_is_not_reused() {
+      visitor = spy(new FailingToReuseVisitor());
+      String treeKey = "slang:tree:1:" + inputFile.md5Hash() + ":" + inputFile.key();
+      DummyReadCache previousCache = (DummyReadCache) sensorContext.previousCache();
+      previousCache.persisted.put(treeKey, new byte[] {42});
+      SlangSensor.analyseFile(
+        converter,
+        inputFileContext,
+        inputFile,
+        List.of(visitor),
+        new DurationStatistics(sensorContext.config()),
+        "1"
+      );
+      verify(converter, times(1)).parse(any());
+      verify(nextCache, never()).copyFromPrevious(treeKey);
+      verify(nextCache, times(1)).write(eq(treeKey), any(byte[].class));
+      assertThat(logTester.logs(Level.WARN)).contains(
+        "Failed to load cached tree for input file moduleKey:file1.slang: Unsupported binary tree format version 42, expected 2");
+    }
+
+    @Test
+    void cached_tree_is_copied_when_the_file_is_skipped() {
+      String treeKey = "slang:tree:1:" + inputFile.md5Hash() + ":" + inputFile.key();
+      DummyReadCache previousCache = (DummyReadCache) sensorContext.previousCache();
+      previousCache.persisted.put(treeKey, BinaryTree.toBinary(new SLangConverter().parse(ORIGINAL_FILE_CONTENT)));
+      SlangSensor.analyseFile(
+        converter,
+        inputFileContext,
+        inputFile,
+        List.of(visitor),
+        new DurationStatistics(sensorContext.config()),
+        "1"
+      );
+      verify(converter, never()).parse(any(String.class), any(String.class));
+      verify(nextCache, times(1)).copyFromPrevious(hashKey);
+      verify(nextCache, times(1)).copyFromPrevious(treeKey);
+    }
   }
 
   @Override
@@ -816,6 +1182,12 @@ class SlangSensorTest extends AbstractSensorTest {
         return new SLangConverter();
       }
 
+      @Override
+      protected ASTConverter astConverter(SensorContext sensorContext, TextInterner textInterner) {
+        converterInterners.add(textInterner);
+        return new SLangConverter(textInterner);
+      }
+
       @Override
       protected Checks<SlangCheck> checks() {
         Checks<SlangCheck> checks = checkFactory.create(repositoryKey());
@@ -26,11 +26,14 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
 import org.sonar.api.batch.sensor.highlighting.TypeOfText;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonarsource.slang.impl.TextRangeImpl;
 import org.sonarsource.slang.parser.SLangConverter;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.sonar.api.batch.sensor.highlighting.TypeOfText.COMMENT;
 import static org.sonar.api.batch.sensor.highlighting.TypeOfText.CONSTANT;
 import static org.sonar.api.batch.sensor.highlighting.TypeOfText.KEYWORD;
@@ -54,6 +57,45 @@ class SyntaxHighlighterTest {
     sensorContext = SensorContextTester.create(tempFolder);
   }
 
+  @Test
+  void cached_highlighting() {
+    inputFile = new TestInputFileBuilder("moduleKey", "file.slang")
+      .setCharset(StandardCharsets.UTF_8)
+      .initMetadata("fun foo() { x + \"abc\"; }").build();
+    InputFileContext ctx = new InputFileContext(sensorContext, inputFile);
+    SyntaxHighlighter.CachedHighlighting cached = new SyntaxHighlighter.CachedHighlighting();
+    cached.add(new TextRangeImpl(1, 0, 1, 3), KEYWORD);
+    cached.add(new TextRangeImpl(1, 16, 1, 21), STRING);
+    byte[] serialized = cached.toByteArray();
+
+    NewHighlighting highlighting = sensorContext.newHighlighting().onFile(inputFile);
+    SyntaxHighlighter.deserialize(serialized, highlighting, ctx);
+    highlighting.save();
+    assertHighlighting(0, 2, KEYWORD);
+    assertHighlighting(3, 15, null);
+    assertHighlighting(16, 20, STRING);
+
+    NewHighlighting otherHighlighting = sensorContext.newHighlighting().onFile(inputFile);
+    // version, 2 type names of 7 and 6 bytes, then the type of the first range after its 16 bytes
+    byte[] otherVersion = serialized.clone();
+    otherVersion[0] = 2;
+    assertThatThrownBy(() -> SyntaxHighlighter.deserialize(otherVersion, otherHighlighting, ctx))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Could not deserialize cached highlighting: unsupported format version 2");
+
+    byte[] unknownType = serialized.clone();
+    unknownType[4] = 'X';
+    assertThatThrownBy(() -> SyntaxHighlighter.deserialize(unknownType, otherHighlighting, ctx))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Could not deserialize cached highlighting: unknown type of text XEYWORD");
+
+    byte[] unknownTypeIndex = serialized.clone();
+    unknownTypeIndex[35] = 2;
+    assertThatThrownBy(() -> SyntaxHighlighter.deserialize(unknownTypeIndex, otherHighlighting, ctx))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Could not deserialize cached highlighting: unknown type of text index 2");
+  }
+
   private void highlight(String code) throws IOException {
     File tmpFile = File.createTempFile("file", ".tmp", tempFolder);
     inputFile = new TestInputFileBuilder("moduleKey", tmpFile.getName())
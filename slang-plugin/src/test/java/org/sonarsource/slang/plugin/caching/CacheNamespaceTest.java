@@ -0,0 +1,52 @@
+/*
+ * SonarSource SLang
+ * Copyright (C) 2018-2026 SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.slang.plugin.caching;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheNamespaceTest {
+
+  private static final List<Class<?>> VISITORS = List.of(String.class, Integer.class);
+
+  @Test
+  void namespace_is_a_short_hexadecimal_fingerprint() {
+    assertThat(CacheNamespace.of("1.0", VISITORS)).matches("[0-9a-f]{16}");
+    assertThat(CacheNamespace.of(null, VISITORS)).matches("[0-9a-f]{16}");
+  }
+
+  @Test
+  void namespace_is_stable() {
+    assertThat(CacheNamespace.of("1.0", VISITORS)).isEqualTo(CacheNamespace.of("1.0", List.of(String.class, Integer.class)));
+  }
+
+  @Test
+  void namespace_changes_with_the_plugin_version() {
+    assertThat(CacheNamespace.of("1.0", VISITORS))
+      .isNotEqualTo(CacheNamespace.of("1.1", VISITORS))
+      .isNotEqualTo(CacheNamespace.of(null, VISITORS));
+  }
+
+  @Test
+  void namespace_changes_with_the_visitors() {
+    assertThat(CacheNamespace.of("1.0", VISITORS))
+      .isNotEqualTo(CacheNamespace.of("1.0", List.of(String.class)))
+      .isNotEqualTo(CacheNamespace.of("1.0", List.of(Integer.class, String.class)));
+  }
+}